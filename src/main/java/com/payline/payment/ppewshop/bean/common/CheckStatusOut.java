@@ -13,6 +13,18 @@ public class CheckStatusOut {
     private String creditAuthorizationNumber;
     private String redirectionUrl;
 
+    public CheckStatusOut() {
+        // Empty constructor needed by Jackson for the XML deserialization
+    }
+
+    private CheckStatusOut(Builder builder) {
+        this.transactionId = builder.transactionId;
+        this.merchantOrderReference = builder.merchantOrderReference;
+        this.statusCode = builder.statusCode;
+        this.creditAuthorizationNumber = builder.creditAuthorizationNumber;
+        this.redirectionUrl = builder.redirectionUrl;
+    }
+
     public String getTransactionId() {
         return transactionId;
     }
@@ -33,6 +45,47 @@ public class CheckStatusOut {
         return creditAuthorizationNumber;
     }
 
+    public static class Builder {
+        private String transactionId;
+        private MerchantOrderReference merchantOrderReference;
+        private StatusCode statusCode;
+        private String creditAuthorizationNumber;
+        private String redirectionUrl;
+
+        public static Builder aCheckStatusOut() {
+            return new Builder();
+        }
+
+        public Builder withTransactionId(String transactionId) {
+            this.transactionId = transactionId;
+            return this;
+        }
+
+        public Builder withMerchantOrderReference(MerchantOrderReference merchantOrderReference) {
+            this.merchantOrderReference = merchantOrderReference;
+            return this;
+        }
+
+        public Builder withStatusCode(StatusCode statusCode) {
+            this.statusCode = statusCode;
+            return this;
+        }
+
+        public Builder withCreditAuthorizationNumber(String creditAuthorizationNumber) {
+            this.creditAuthorizationNumber = creditAuthorizationNumber;
+            return this;
+        }
+
+        public Builder withRedirectionUrl(String redirectionUrl) {
+            this.redirectionUrl = redirectionUrl;
+            return this;
+        }
+
+        public CheckStatusOut build() {
+            return new CheckStatusOut(this);
+        }
+    }
+
     /**
      * A: Acceptée
      * E: à l'étude
@@ -24,6 +24,10 @@ public class MerchantOrderReference {
         return merchantOrderId;
     }
 
+    public String getMerchantRef() {
+        return merchantRef;
+    }
+
     public static class Builder {
         private String merchantOrderId;
         private String merchantRef;
@@ -1,26 +1,8 @@
 package com.payline.payment.ppewshop.bean.request;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.xml.JacksonXmlModule;
-import com.fasterxml.jackson.dataformat.xml.XmlMapper;
-import com.payline.payment.ppewshop.exception.InvalidDataException;
-
+/**
+ * Base class of the requests sent to the partner API: plain data, serialized by
+ * {@link com.payline.payment.ppewshop.utils.xml.XmlSerializer}.
+ */
 public class PpewShopRequest {
-    private ObjectMapper mapper;
-
-
-    public PpewShopRequest() {
-        JacksonXmlModule xmlModule = new JacksonXmlModule();
-        xmlModule.setDefaultUseWrapper(false);
-        mapper = new XmlMapper(xmlModule);
-    }
-
-    public String toXml() {
-        try {
-            return mapper.writeValueAsString(this);
-        } catch (JsonProcessingException e) {
-            throw new InvalidDataException("Unable to create XML", e);
-        }
-    }
 }
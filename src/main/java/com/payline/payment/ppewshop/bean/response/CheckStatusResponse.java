@@ -3,18 +3,34 @@ package com.payline.payment.ppewshop.bean.response;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.payline.payment.ppewshop.bean.common.CheckStatusOut;
 import com.payline.payment.ppewshop.exception.InvalidDataException;
+import com.payline.payment.ppewshop.utils.xml.CheckStatusResponseDecoder;
+import com.payline.pmapi.logger.LogManager;
+import org.apache.logging.log4j.Logger;
 
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
 public class CheckStatusResponse {
+    private static final Logger LOGGER = LogManager.getLogger(CheckStatusResponse.class);
     private static XmlMapper xmlMapper = new XmlMapper();
 
+    /**
+     * The size of a response which can still be parsed by Jackson if the streaming decoder fails on it (bytes).
+     */
+    private static final int FALLBACK_READ_LIMIT = 64 * 1024;
+
     private CheckStatusOut checkStatusOut;
 
     public CheckStatusResponse() {
         this.checkStatusOut = new CheckStatusOut();
     }
 
+    public CheckStatusResponse(CheckStatusOut checkStatusOut) {
+        this.checkStatusOut = checkStatusOut;
+    }
+
     public CheckStatusOut getCheckStatusOut() {
         return checkStatusOut;
     }
@@ -26,4 +42,38 @@ public class CheckStatusResponse {
             throw new InvalidDataException("Unable to parse XML CheckStatusResponse", e);
         }
     }
+
+    /**
+     * Parse the response directly from the HTTP entity stream, without any intermediate String.
+     * Only the fields used by the plugin are read, by {@link CheckStatusResponseDecoder}: the merchant order reference
+     * is not. If the decoder fails, the response is parsed again by Jackson.
+     */
+    public static CheckStatusResponse fromXml(InputStream xml) {
+        InputStream in = xml.markSupported() ? xml : new BufferedInputStream(xml);
+        in.mark(FALLBACK_READ_LIMIT);
+        try {
+            return CheckStatusResponseDecoder.decode(in);
+        } catch (XMLStreamException | IllegalArgumentException e) {
+            LOGGER.warn("Unable to decode the CheckStatusResponse, falling back to Jackson", e);
+        }
+
+        try {
+            in.reset();
+        } catch (IOException e) {
+            throw new InvalidDataException("Unable to parse XML CheckStatusResponse", e);
+        }
+        return fromXmlWithJackson(in);
+    }
+
+    /**
+     * Parse the whole response with Jackson, without trying the {@link CheckStatusResponseDecoder} first: the
+     * fallback of a caller which has already tried it.
+     */
+    public static CheckStatusResponse fromXmlWithJackson(InputStream xml) {
+        try {
+            return xmlMapper.readValue(xml, CheckStatusResponse.class);
+        } catch (IOException e) {
+            throw new InvalidDataException("Unable to parse XML CheckStatusResponse", e);
+        }
+    }
 }
@@ -5,7 +5,9 @@ import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlRootElement;
 import com.payline.payment.ppewshop.bean.common.InitDossierOut;
 import com.payline.payment.ppewshop.exception.InvalidDataException;
 
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
+import java.io.InputStream;
 
 @JacksonXmlRootElement(namespace = "urn:PPEWShopServiceV3", localName = "initDossierResponse")
 public class InitDossierResponse {
@@ -25,5 +27,27 @@ public class InitDossierResponse {
         }
     }
 
+    /**
+     * Parse the response directly from the HTTP entity stream, without any intermediate String.
+     */
+    public static InitDossierResponse fromXml(InputStream xml) {
+        try {
+            return xmlMapper.readValue(xml, InitDossierResponse.class);
+        } catch (IOException e) {
+            throw new InvalidDataException("Unable to parse XML InitDossierResponse", e);
+        }
+    }
+
+    /**
+     * Parse the response from a reader positioned at its root element, by the decoder which has identified it.
+     */
+    public static InitDossierResponse fromXml(XMLStreamReader xml) {
+        try {
+            return xmlMapper.readValue(xml, InitDossierResponse.class);
+        } catch (IOException e) {
+            throw new InvalidDataException("Unable to parse XML InitDossierResponse", e);
+        }
+    }
+
 
 }
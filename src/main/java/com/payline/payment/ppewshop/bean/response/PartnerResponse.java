@@ -0,0 +1,85 @@
+package com.payline.payment.ppewshop.bean.response;
+
+/**
+ * The decoded response of a call to the partner API: either the expected response ({@link Ok}),
+ * or the error returned by the partner ({@link Ko}), whatever the HTTP status.
+ *
+ * @param <T> the type of the expected response
+ */
+public abstract class PartnerResponse<T> {
+
+    private PartnerResponse() {
+    }
+
+    public static <T> PartnerResponse<T> ok(T value) {
+        return new Ok<>(value);
+    }
+
+    public static <T> PartnerResponse<T> ko(PpewShopResponseKO error) {
+        return new Ko<>(error);
+    }
+
+    /**
+     * @return true if the partner returned the expected response, false if it returned an error
+     */
+    public abstract boolean isOk();
+
+    /**
+     * @return the expected response
+     * @throws IllegalStateException if the partner returned an error
+     */
+    public abstract T getValue();
+
+    /**
+     * @return the error returned by the partner
+     * @throws IllegalStateException if the partner returned the expected response
+     */
+    public abstract PpewShopResponseKO getError();
+
+    public static final class Ok<T> extends PartnerResponse<T> {
+        private final T value;
+
+        private Ok(T value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean isOk() {
+            return true;
+        }
+
+        @Override
+        public T getValue() {
+            return value;
+        }
+
+        @Override
+        public PpewShopResponseKO getError() {
+            throw new IllegalStateException("The partner did not return an error");
+        }
+    }
+
+    public static final class Ko<T> extends PartnerResponse<T> {
+        private final PpewShopResponseKO error;
+
+        private Ko(PpewShopResponseKO error) {
+            this.error = error;
+        }
+
+        @Override
+        public boolean isOk() {
+            return false;
+        }
+
+        @Override
+        public T getValue() {
+            throw new IllegalStateException("The partner returned an error");
+        }
+
+        @Override
+        public PpewShopResponseKO getError() {
+            return error;
+        }
+    }
+
+}
@@ -4,7 +4,9 @@ import com.fasterxml.jackson.annotation.JsonValue;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.payline.payment.ppewshop.exception.InvalidDataException;
 
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
+import java.io.InputStream;
 
 public class PpewShopResponseKO {
     private static final XmlMapper xmlMapper = new XmlMapper();
@@ -29,6 +31,28 @@ public class PpewShopResponseKO {
         }
     }
 
+    /**
+     * Parse the response directly from the HTTP entity stream, without any intermediate String.
+     */
+    public static PpewShopResponseKO fromXml(InputStream xml) {
+        try {
+            return xmlMapper.readValue(xml, PpewShopResponseKO.class);
+        } catch (IOException e) {
+            throw new InvalidDataException("Unable to parse XML ResponseKO", e);
+        }
+    }
+
+    /**
+     * Parse the response from a reader positioned at its root element, by the decoder which has identified it.
+     */
+    public static PpewShopResponseKO fromXml(XMLStreamReader xml) {
+        try {
+            return xmlMapper.readValue(xml, PpewShopResponseKO.class);
+        } catch (IOException e) {
+            throw new InvalidDataException("Unable to parse XML ResponseKO", e);
+        }
+    }
+
     public enum ErrorCode {
         CODE_11001("11001"),    // The service encountered an exception while trying to store the order information.
         CODE_11002("11002"),    // The service encountered an exception while trying to store the order information.
@@ -0,0 +1,21 @@
+package com.payline.payment.ppewshop.exception;
+
+import com.payline.pmapi.bean.common.FailureCause;
+
+/**
+ * An expected outcome of a call to the partner API, as opposed to a fault of the plugin or of the network:
+ * an error code returned by the partner, or a call refused because the merchant has too many in progress.
+ * These are part of the normal flow (the configuration check even relies on one), so they are thrown without a stack
+ * trace: filling it would cost more than the rest of their handling, and would always point at the same place.
+ */
+public class BusinessException extends PluginException {
+
+    public BusinessException(String message) {
+        this(message, FailureCause.INTERNAL_ERROR);
+    }
+
+    public BusinessException(String message, FailureCause failureCause) {
+        super(message, failureCause, false);
+    }
+
+}
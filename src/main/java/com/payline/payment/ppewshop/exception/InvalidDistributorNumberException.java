@@ -1,6 +1,6 @@
 package com.payline.payment.ppewshop.exception;
 
-public class InvalidDistributorNumberException extends PluginException {
+public class InvalidDistributorNumberException extends BusinessException {
 
     public InvalidDistributorNumberException(String message) {
         super(message);
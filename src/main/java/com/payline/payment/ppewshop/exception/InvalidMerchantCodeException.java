@@ -1,6 +1,6 @@
 package com.payline.payment.ppewshop.exception;
 
-public class InvalidMerchantCodeException extends PluginException {
+public class InvalidMerchantCodeException extends BusinessException {
 
     public InvalidMerchantCodeException(String message) {
         super(message);
@@ -1,6 +1,6 @@
 package com.payline.payment.ppewshop.exception;
 
-public class InvalidTransactionIdException extends PluginException {
+public class InvalidTransactionIdException extends BusinessException {
     public InvalidTransactionIdException(String message) {
         super(message);
     }
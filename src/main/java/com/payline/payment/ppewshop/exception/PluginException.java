@@ -20,10 +20,7 @@ public class PluginException extends RuntimeException {
     }
 
     public PluginException(String message, FailureCause failureCause) {
-        super(message);
-        checkMessageAndFailureCause(message, failureCause);
-        this.errorCode = PluginUtils.truncate(message, ERROR_CODE_MAX_LENGTH);
-        this.failureCause = failureCause;
+        this(message, failureCause, null, true);
     }
 
     public PluginException(String message, Exception cause) {
@@ -31,7 +28,18 @@ public class PluginException extends RuntimeException {
     }
 
     public PluginException(String message, FailureCause failureCause, Exception cause) {
-        super(message, cause);
+        this(message, failureCause, cause, true);
+    }
+
+    /**
+     * @param writableStackTrace false for the expected outcomes, which do not need a stack trace (see {@link BusinessException})
+     */
+    protected PluginException(String message, FailureCause failureCause, boolean writableStackTrace) {
+        this(message, failureCause, null, writableStackTrace);
+    }
+
+    private PluginException(String message, FailureCause failureCause, Exception cause, boolean writableStackTrace) {
+        super(message, cause, true, writableStackTrace);
         checkMessageAndFailureCause(message, failureCause);
         this.errorCode = PluginUtils.truncate(message, ERROR_CODE_MAX_LENGTH);
         this.failureCause = failureCause;
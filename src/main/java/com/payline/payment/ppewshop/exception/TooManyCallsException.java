@@ -0,0 +1,19 @@
+package com.payline.payment.ppewshop.exception;
+
+import com.payline.pmapi.bean.common.FailureCause;
+
+/**
+ * The call to the partner API has not been sent: the merchant has exceeded its share of the partner calls.
+ * A temporary error: the same call can succeed once the calls in progress are over.
+ * <p>
+ * The pmapi offers no failure cause for a throttled call. As the limit is the plugin's own and nothing reached the
+ * network, it is reported as an {@link FailureCause#INTERNAL_ERROR}: {@link FailureCause#COMMUNICATION_ERROR} stays
+ * the cause of the calls which failed on the way to the partner, or were cut by its circuit breaker.
+ */
+public class TooManyCallsException extends BusinessException {
+
+    public TooManyCallsException(String message) {
+        super(message, FailureCause.INTERNAL_ERROR);
+    }
+
+}
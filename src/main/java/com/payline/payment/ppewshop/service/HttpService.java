@@ -1,28 +1,48 @@
 package com.payline.payment.ppewshop.service;
 
+import com.payline.payment.ppewshop.bean.common.CheckStatusIn;
+import com.payline.payment.ppewshop.bean.common.MerchantInformation;
 import com.payline.payment.ppewshop.bean.common.Warning;
 import com.payline.payment.ppewshop.bean.configuration.RequestConfiguration;
 import com.payline.payment.ppewshop.bean.request.CheckStatusRequest;
 import com.payline.payment.ppewshop.bean.request.InitDossierRequest;
 import com.payline.payment.ppewshop.bean.response.CheckStatusResponse;
 import com.payline.payment.ppewshop.bean.response.InitDossierResponse;
+import com.payline.payment.ppewshop.bean.response.PartnerResponse;
 import com.payline.payment.ppewshop.bean.response.PpewShopResponseKO;
+import com.payline.payment.ppewshop.exception.BusinessException;
 import com.payline.payment.ppewshop.exception.InvalidDistributorNumberException;
 import com.payline.payment.ppewshop.exception.InvalidMerchantCodeException;
 import com.payline.payment.ppewshop.exception.InvalidTransactionIdException;
 import com.payline.payment.ppewshop.exception.PluginException;
+import com.payline.payment.ppewshop.exception.TooManyCallsException;
 import com.payline.payment.ppewshop.utils.Constants;
 import com.payline.payment.ppewshop.utils.FailureBusiness;
 import com.payline.payment.ppewshop.utils.PluginUtils;
+import com.payline.payment.ppewshop.utils.cache.TransactionStatusCache;
+import com.payline.payment.ppewshop.utils.http.Bulkhead;
+import com.payline.payment.ppewshop.utils.http.CircuitBreaker;
+import com.payline.payment.ppewshop.utils.http.HedgingPolicy;
 import com.payline.payment.ppewshop.utils.http.HttpClient;
+import com.payline.payment.ppewshop.utils.http.PartnerOperation;
 import com.payline.payment.ppewshop.utils.http.StringResponse;
+import com.payline.payment.ppewshop.utils.http.XmlRequestEntity;
+import com.payline.payment.ppewshop.utils.metrics.Metrics;
+import com.payline.payment.ppewshop.utils.properties.ConfigProperties;
+import com.payline.payment.ppewshop.utils.xml.PartnerResponseDecoder;
+import com.payline.pmapi.bean.common.FailureCause;
+import com.payline.pmapi.bean.configuration.PartnerConfiguration;
 import com.payline.pmapi.logger.LogManager;
 import org.apache.http.Header;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.HttpEntity;
 import org.apache.http.message.BasicHeader;
 import org.apache.logging.log4j.Logger;
 
-import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 public class HttpService {
 
@@ -34,9 +54,67 @@ public class HttpService {
 
     private HttpClient client = HttpClient.getInstance();
     private static final Logger LOGGER = LogManager.getLogger(HttpService.class);
+    private Metrics metrics = Metrics.getInstance();
+
+    /**
+     * One circuit breaker per partner URL, so that a failing endpoint does not hold the payment threads.
+     */
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private final int circuitBreakerWindowSize;
+    private final int circuitBreakerMinimumCalls;
+    private final int circuitBreakerFailureRateThreshold;
+    private final int circuitBreakerOpenDuration;
+    private final int circuitBreakerHalfOpenCalls;
+
+    /**
+     * One bulkhead per merchant (merchant code and distributor number), so that a flooding merchant cannot take
+     * the connections of the others.
+     */
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final int bulkheadMaxConcurrentCalls;
+    private final int bulkheadRate;
+    private final int bulkheadBurst;
+
+    /**
+     * If not null, a slow idempotent call is sent a second time, and the first response obtained is used.
+     */
+    private HedgingPolicy hedgingPolicy;
+
+    /**
+     * The checkStatus calls in progress, by partner URL and transaction: a concurrent call for the same transaction
+     * joins the one in progress instead of calling the partner again.
+     */
+    private final Map<String, CompletableFuture<CheckStatusResponse>> checkStatusCalls = new ConcurrentHashMap<>();
+
+    /**
+     * The finished transactions, answered without calling the partner again.
+     */
+    private TransactionStatusCache transactionStatusCache;
 
 
     private HttpService() {
+        try {
+            ConfigProperties config = ConfigProperties.getInstance();
+            circuitBreakerWindowSize = Integer.parseInt(config.get("http.circuitBreaker.windowSize"));
+            circuitBreakerMinimumCalls = Integer.parseInt(config.get("http.circuitBreaker.minimumCalls"));
+            circuitBreakerFailureRateThreshold = Integer.parseInt(config.get("http.circuitBreaker.failureRateThreshold"));
+            circuitBreakerOpenDuration = Integer.parseInt(config.get("http.circuitBreaker.openDuration"));
+            circuitBreakerHalfOpenCalls = Integer.parseInt(config.get("http.circuitBreaker.halfOpenCalls"));
+
+            bulkheadMaxConcurrentCalls = Integer.parseInt(config.get("http.bulkhead.maxConcurrentCalls"));
+            bulkheadRate = Integer.parseInt(config.get("http.bulkhead.rate"));
+            bulkheadBurst = Integer.parseInt(config.get("http.bulkhead.burst"));
+
+            transactionStatusCache = new TransactionStatusCache(Integer.parseInt(config.get("cache.transactionStatus.maxSize"))
+                    , Integer.parseInt(config.get("cache.transactionStatus.timeToLive")) * 1000L);
+
+            if (Boolean.parseBoolean(config.get("http.hedging.enabled"))) {
+                hedgingPolicy = new HedgingPolicy(Integer.parseInt(config.get("http.hedging.delay"))
+                        , Integer.parseInt(config.get("http.hedging.budget")));
+            }
+        } catch (NumberFormatException e) {
+            throw new PluginException("plugin error: http.circuitBreaker.*, http.bulkhead.*, http.hedging.* and cache.* properties must be integers", e);
+        }
     }
 
     private static class Holder {
@@ -56,23 +134,208 @@ public class HttpService {
         return headers;
     }
 
+    /**
+     * @param url the partner URL
+     * @return the circuit breaker protecting this URL
+     */
+    CircuitBreaker getCircuitBreaker(String url) {
+        return circuitBreakers.computeIfAbsent(url, k -> new CircuitBreaker(k
+                , circuitBreakerWindowSize
+                , circuitBreakerMinimumCalls
+                , circuitBreakerFailureRateThreshold
+                , circuitBreakerOpenDuration * 1000L
+                , circuitBreakerHalfOpenCalls));
+    }
+
+    /**
+     * @param merchantInformation the merchant identification sent to the partner
+     * @return the bulkhead limiting the calls of this merchant
+     */
+    Bulkhead getBulkhead(MerchantInformation merchantInformation) {
+        String key = merchantInformation == null ? ""
+                : merchantInformation.getMerchantCode() + "/" + merchantInformation.getDistributorNumber();
+        return bulkheads.computeIfAbsent(key, k -> new Bulkhead(bulkheadMaxConcurrentCalls, bulkheadRate, bulkheadBurst));
+    }
+
+    /**
+     * Enable or disable the hedging of the slow checkStatus calls.
+     *
+     * @param hedgingPolicy the policy deciding when a call is hedged, null to disable hedging
+     */
+    public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
+    /**
+     * Post the request to the partner API, then handle the response.
+     * A slow idempotent request is hedged if enabled: each request sent goes through the bulkhead and the circuit
+     * breaker.
+     */
+    private <T> CompletableFuture<T> post(RequestConfiguration configuration, MerchantInformation merchantInformation
+            , HttpEntity body, PartnerOperation operation, Function<StringResponse, T> responseHandler) {
+        String url = configuration.getPartnerConfiguration().getProperty(Constants.PartnerConfigurationKeys.URL);
+        Header[] headers = createHeaders();
+
+        HedgingPolicy hedging = this.hedgingPolicy;
+        CompletableFuture<StringResponse> response;
+        if (hedging != null && operation.isIdempotent() && body.isRepeatable()) {
+            response = client.hedge(() -> this.send(url, headers, merchantInformation, body, operation), operation, hedging);
+        } else {
+            response = this.send(url, headers, merchantInformation, body, operation);
+        }
+        return response.thenApply(responseHandler);
+    }
+
+    /**
+     * Send the request to the partner API through the bulkhead of the merchant and the circuit breaker of the URL.
+     * If the merchant has too many calls in progress, or if the circuit is open, the returned future fails immediately
+     * without any call. Cancelling the returned future aborts the call.
+     */
+    private CompletableFuture<StringResponse> send(String url, Header[] headers, MerchantInformation merchantInformation
+            , HttpEntity body, PartnerOperation operation) {
+        Bulkhead bulkhead = this.getBulkhead(merchantInformation);
+        if (!bulkhead.tryAcquire()) {
+            metrics.increment("http.bulkhead.rejected");
+            return rejected(new TooManyCallsException("Too many calls to the partner API for this merchant"));
+        }
+
+        CircuitBreaker circuitBreaker = this.getCircuitBreaker(url == null ? "" : url);
+        if (!circuitBreaker.tryAcquire()) {
+            bulkhead.release();
+            return rejected(new PluginException("The partner API is unavailable (circuit breaker open)", FailureCause.COMMUNICATION_ERROR));
+        }
+
+        CompletableFuture<StringResponse> response;
+        try {
+            response = client.postAsync(url, headers, body, operation);
+        } catch (RuntimeException e) {
+            // the request has not been sent
+            circuitBreaker.release();
+            bulkhead.release();
+            throw e;
+        }
+
+        response.whenComplete((stringResponse, failure) -> {
+            bulkhead.release();
+            if (failure == null && isPartnerUp(stringResponse)) {
+                circuitBreaker.onSuccess();
+            } else if (response.isCancelled()) {
+                // aborted by the caller (a hedged request which lost): says nothing about the partner
+                circuitBreaker.release();
+            } else {
+                circuitBreaker.onFailure();
+            }
+        });
+        return response;
+    }
+
+    /**
+     * Any response means the partner API is up, unless it is a server error it did not produce itself (e.g. the 503
+     * page of a proxy or load balancer in front of it).
+     */
+    private static boolean isPartnerUp(StringResponse response) {
+        return response.getStatusCode() < 500 || PartnerResponseDecoder.isPartnerError(response.getContent());
+    }
+
+    private static <T> CompletableFuture<T> rejected(PluginException e) {
+        CompletableFuture<T> rejected = new CompletableFuture<>();
+        rejected.completeExceptionally(e);
+        return rejected;
+    }
+
+    /**
+     * Asynchronous checkStatus call: the calling thread is released as soon as the request is handed to the client.
+     * Concurrent calls for the same transaction share a single call to the partner, and its result.
+     *
+     * @param configuration contains all request info
+     * @param request       request object needed to create the body
+     * @return a future completed with the response body of the API call, or with the {@link PluginException} describing the error
+     */
+    public CompletableFuture<CheckStatusResponse> checkStatusAsync(RequestConfiguration configuration, CheckStatusRequest request) {
+        String transactionStatusKey = transactionStatusKey(configuration.getPartnerConfiguration(), request);
+
+        // a finished transaction does not change anymore
+        CheckStatusResponse cached = transactionStatusCache.get(transactionStatusKey);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        // the calls in progress are shared on the same key as the cache
+        String callKey = transactionStatusKey;
+        CompletableFuture<CheckStatusResponse> call = new CompletableFuture<>();
+        CompletableFuture<CheckStatusResponse> inFlight = checkStatusCalls.putIfAbsent(callKey, call);
+        if (inFlight != null) {
+            metrics.increment("http." + PartnerOperation.CHECK_STATUS.getName() + ".coalesced");
+            // each caller gets its own future: cancelling it does not affect the others
+            return inFlight.thenApply(Function.identity());
+        }
+
+        try {
+            XmlRequestEntity body = new XmlRequestEntity(request);
+            this.post(configuration, request.getCheckStatusIn().getMerchantInformation(), body, PartnerOperation.CHECK_STATUS
+                    , stringResponse -> handleCheckStatusResponse(request, transactionStatusKey, stringResponse))
+                    .whenComplete((response, failure) -> {
+                        // removed first: a later caller sends a new call, or finds the status in the cache
+                        checkStatusCalls.remove(callKey, call);
+                        if (failure == null) {
+                            call.complete(response);
+                        } else {
+                            call.completeExceptionally(failure instanceof CompletionException && failure.getCause() != null
+                                    ? failure.getCause() : failure);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            // the call has not been sent: the callers which joined it fail the same way
+            checkStatusCalls.remove(callKey, call);
+            call.completeExceptionally(e);
+            throw e;
+        }
+        return call.thenApply(Function.identity());
+    }
+
     /**
      * @param configuration contains all request info
      * @param request       request object needed to create the body
      * @return the response body of the API call
      */
     public CheckStatusResponse checkStatus(RequestConfiguration configuration, CheckStatusRequest request) {
+        return PluginUtils.join(checkStatusAsync(configuration, request));
+    }
 
-        String body = request.toXml();
-        String url = configuration.getPartnerConfiguration().getProperty(Constants.PartnerConfigurationKeys.URL);
-        Header[] headers = createHeaders();
+    /**
+     * Record the final decision of Payline about a transaction: it confirms or invalidates its cached status.
+     *
+     * @param partnerConfiguration the partner configuration of the transaction
+     * @param request              the checkStatus request of the transaction
+     * @param accepted             true if Payline accepted the transaction, false if it refused or cancelled it, null if unknown
+     */
+    public void onPaylineDecision(PartnerConfiguration partnerConfiguration, CheckStatusRequest request, Boolean accepted) {
+        transactionStatusCache.onPaylineDecision(transactionStatusKey(partnerConfiguration, request), accepted);
+    }
 
-        StringResponse stringResponse = client.post(url, headers, new StringEntity(body, StandardCharsets.UTF_8));
+    /**
+     * @return the key of the transaction in the status cache: the partner transaction id, scoped by the partner URL
+     * (a transaction id of the test platform is not one of the production), and by the merchant so that a wrong
+     * merchant is still reported by the partner
+     */
+    private static String transactionStatusKey(PartnerConfiguration partnerConfiguration, CheckStatusRequest request) {
+        String url = partnerConfiguration.getProperty(Constants.PartnerConfigurationKeys.URL);
+        CheckStatusIn checkStatusIn = request.getCheckStatusIn();
+        MerchantInformation merchantInformation = checkStatusIn.getMerchantInformation();
+        return merchantInformation == null ? url + "|" + checkStatusIn.getTransactionId()
+                : url + "|" + merchantInformation.getMerchantCode() + "/" + merchantInformation.getDistributorNumber()
+                + "/" + checkStatusIn.getTransactionId();
+    }
 
-        if (stringResponse.isSuccess()) {
-            return CheckStatusResponse.fromXml(stringResponse.getContent());
+    private CheckStatusResponse handleCheckStatusResponse(CheckStatusRequest request, String transactionStatusKey
+            , StringResponse stringResponse) {
+        // the root element tells whether it is an error, whatever the HTTP status
+        PartnerResponse<CheckStatusResponse> response = PartnerResponseDecoder.decodeCheckStatus(stringResponse.getContentStream());
+        if (response.isOk()) {
+            transactionStatusCache.put(transactionStatusKey, response.getValue());
+            return response.getValue();
         } else {
-            PpewShopResponseKO responseKO = PpewShopResponseKO.fromXml(stringResponse.getContent());
+            PpewShopResponseKO responseKO = response.getError();
             LOGGER.error(responseKO.getErrorDescription());
 
             if (responseKO.getErrorCode().equals(PpewShopResponseKO.ErrorCode.CODE_22002)) {
@@ -87,35 +350,46 @@ public class HttpService {
                 throw new InvalidTransactionIdException(request.getCheckStatusIn().getTransactionId());
             } else{
                 // other error code
-                throw new PluginException(responseKO.getErrorCode().code, FailureBusiness.getFailureCauseFromErrorCode(responseKO.getErrorCode()));
+                throw new BusinessException(responseKO.getErrorCode().code, FailureBusiness.getFailureCauseFromErrorCode(responseKO.getErrorCode()));
             }
         }
     }
 
+    /**
+     * Asynchronous initDossier call: the calling thread is released as soon as the request is handed to the client.
+     *
+     * @param configuration contains all request info
+     * @param request       request object needed to create the body
+     * @return a future completed with the response body of the API call, or with the {@link PluginException} describing the error
+     */
+    public CompletableFuture<InitDossierResponse> initDossierAsync(RequestConfiguration configuration, InitDossierRequest request) {
+        XmlRequestEntity body = new XmlRequestEntity(request);
+        return this.post(configuration, request.getInitDossierIn().getMerchantInformation(), body, PartnerOperation.INIT_DOSSIER
+                , this::handleInitDossierResponse);
+    }
+
     /**
      * @param configuration contains all request info
      * @param request       request object needed to create the body
      * @return the response body of the API call
      */
     public InitDossierResponse initDossier(RequestConfiguration configuration, InitDossierRequest request) {
+        return PluginUtils.join(initDossierAsync(configuration, request));
+    }
 
-        String body = request.toXml();
-        String url = configuration.getPartnerConfiguration().getProperty(Constants.PartnerConfigurationKeys.URL);
-        Header[] headers = createHeaders();
-
-        StringResponse stringResponse = client.post(url, headers, new StringEntity(body, StandardCharsets.UTF_8));
-
-        if (stringResponse.isSuccess()) {
-            InitDossierResponse initDossierResponse = InitDossierResponse.fromXml(stringResponse.getContent());
+    private InitDossierResponse handleInitDossierResponse(StringResponse stringResponse) {
+        PartnerResponse<InitDossierResponse> response = PartnerResponseDecoder.decodeInitDossier(stringResponse.getContentStream());
+        if (response.isOk()) {
+            InitDossierResponse initDossierResponse = response.getValue();
             Warning warning = initDossierResponse.getInitDossierOut().getWarning();
             if (warning != null && !PluginUtils.isEmpty(warning.getWarningCode())) {
                 LOGGER.warn("{}: {}", warning.getClass(), warning.getWarningDescription());
             }
             return initDossierResponse;
         } else {
-            PpewShopResponseKO responseKO = PpewShopResponseKO.fromXml(stringResponse.getContent());
+            PpewShopResponseKO responseKO = response.getError();
             LOGGER.error(responseKO.getErrorDescription());
-            throw new PluginException(responseKO.getErrorCode().code, FailureBusiness.getFailureCauseFromErrorCode(responseKO.getErrorCode()));
+            throw new BusinessException(responseKO.getErrorCode().code, FailureBusiness.getFailureCauseFromErrorCode(responseKO.getErrorCode()));
         }
     }
 
@@ -0,0 +1,128 @@
+package com.payline.payment.ppewshop.service;
+
+import com.payline.payment.ppewshop.bean.common.CheckStatusOut;
+import com.payline.payment.ppewshop.bean.configuration.RequestConfiguration;
+import com.payline.payment.ppewshop.bean.request.CheckStatusRequest;
+import com.payline.payment.ppewshop.bean.response.CheckStatusResponse;
+import com.payline.payment.ppewshop.exception.PluginException;
+import com.payline.payment.ppewshop.utils.metrics.Metrics;
+import com.payline.payment.ppewshop.utils.properties.ConfigProperties;
+import com.payline.pmapi.logger.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Verify the status of a notified transaction in the background, so that the partner notification is acknowledged
+ * without waiting for the checkStatus call ("fast acknowledge").
+ * <p>
+ * The verifications are asynchronous calls, which do not hold any thread while the partner answers, and their number
+ * is bounded: beyond it, the notification must be verified synchronously, as without this mode.
+ * A final status obtained is cached by the {@link HttpService}, which answers the next notification of the
+ * transaction with it, and a dossier still studied is handed to the {@link PendingDossierPoller}.
+ * <p>
+ * Opt-in ("notification.fastAck.enabled"), its activity is counted in the "notification.fastAck.accepted",
+ * ".rejected" and ".failed" counters.
+ */
+public class NotificationVerifier {
+    private static final Logger LOGGER = LogManager.getLogger(NotificationVerifier.class);
+
+    static final String ACCEPTED = "notification.fastAck.accepted";
+    static final String REJECTED = "notification.fastAck.rejected";
+    static final String FAILED = "notification.fastAck.failed";
+
+    private final boolean enabled;
+    private final Semaphore permits;
+
+    private HttpService httpService = HttpService.getInstance();
+    private PendingDossierPoller pendingDossierPoller = PendingDossierPoller.getInstance();
+    private Metrics metrics = Metrics.getInstance();
+
+    // --- Singleton Holder pattern + initialization BEGIN
+
+    /**
+     * @param enabled    false to verify every notification synchronously
+     * @param maxPending the maximum number of verifications in progress
+     */
+    NotificationVerifier(boolean enabled, int maxPending) {
+        this.enabled = enabled;
+        this.permits = new Semaphore(Math.max(0, maxPending));
+    }
+
+    private static class Holder {
+        private static final NotificationVerifier instance = create();
+
+        private static NotificationVerifier create() {
+            ConfigProperties config = ConfigProperties.getInstance();
+            try {
+                return new NotificationVerifier(Boolean.parseBoolean(config.get("notification.fastAck.enabled"))
+                        , Integer.parseInt(config.get("notification.fastAck.maxPending")));
+            } catch (NumberFormatException e) {
+                throw new PluginException("plugin error: notification.fastAck.maxPending property must be an integer", e);
+            }
+        }
+    }
+
+    public static NotificationVerifier getInstance() {
+        return Holder.instance;
+    }
+    // --- Singleton Holder pattern + initialization END
+
+    /**
+     * Start the verification of a notified transaction, if enabled and if there is room for it.
+     *
+     * @param configuration the configuration of the checkStatus call
+     * @param request       the checkStatus request of the notified transaction
+     * @return the verification, which may already be completed (a cached final status, or a call refused at once):
+     * its result must then be used instead of calling the partner again. Null if the transaction must be verified by
+     * the caller.
+     */
+    public CompletableFuture<CheckStatusResponse> verifyAsync(RequestConfiguration configuration, CheckStatusRequest request) {
+        if (!enabled) {
+            return null;
+        }
+        if (!permits.tryAcquire()) {
+            metrics.increment(REJECTED);
+            return null;
+        }
+
+        CompletableFuture<CheckStatusResponse> verification;
+        try {
+            verification = httpService.checkStatusAsync(configuration, request);
+            verification.whenComplete((response, failure) -> {
+                permits.release();
+                if (failure == null) {
+                    this.onVerified(configuration, request, response);
+                } else {
+                    // the status will be asked again by Payline, or by the next notification
+                    metrics.increment(FAILED);
+                    LOGGER.warn("Unable to verify the notified transaction {}", request.getCheckStatusIn().getTransactionId(), failure);
+                }
+            });
+        } catch (RuntimeException e) {
+            // the call has not been sent
+            permits.release();
+            throw e;
+        }
+        if (!verification.isDone()) {
+            // answered without waiting otherwise: no need to acknowledge it first
+            metrics.increment(ACCEPTED);
+        }
+        return verification;
+    }
+
+    private void onVerified(RequestConfiguration configuration, CheckStatusRequest request, CheckStatusResponse response) {
+        if (response.getCheckStatusOut().getStatusCode() == CheckStatusOut.StatusCode.E) {
+            pendingDossierPoller.track(configuration, request);
+        }
+    }
+
+    /**
+     * @return the number of verifications which can still be started
+     */
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+}
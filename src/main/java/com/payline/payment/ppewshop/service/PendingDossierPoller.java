@@ -0,0 +1,303 @@
+package com.payline.payment.ppewshop.service;
+
+import com.payline.payment.ppewshop.bean.common.CheckStatusOut;
+import com.payline.payment.ppewshop.bean.common.MerchantInformation;
+import com.payline.payment.ppewshop.bean.configuration.RequestConfiguration;
+import com.payline.payment.ppewshop.bean.request.CheckStatusRequest;
+import com.payline.payment.ppewshop.bean.response.CheckStatusResponse;
+import com.payline.payment.ppewshop.exception.BusinessException;
+import com.payline.payment.ppewshop.exception.PluginException;
+import com.payline.payment.ppewshop.exception.TooManyCallsException;
+import com.payline.payment.ppewshop.utils.metrics.Metrics;
+import com.payline.payment.ppewshop.utils.properties.ConfigProperties;
+import com.payline.pmapi.logger.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Poll in the background the dossiers the partner is still studying (status "E"), so that their final status is
+ * known as soon as possible: once obtained, it is kept by the transaction status cache of the {@link HttpService},
+ * and answered to Payline without calling the partner again.
+ * <p>
+ * A dossier is polled soon after it is tracked, then less and less often (the interval doubles after each poll, up
+ * to a maximum), until its status changes or its deadline is reached.
+ * The due dossiers are polled in batches, one per merchant, on a bounded pool of worker threads: a merchant's
+ * dossiers are polled one after the other, which keeps the load on the partner low.
+ * <p>
+ * A dossier the partner refuses to answer about (unknown transaction, wrong merchant...) is dropped; after a technical
+ * error, an open circuit or too many calls of its merchant, it is polled again later.
+ * <p>
+ * Opt-in ("poller.enabled"), its activity is counted in the "poller.polls", ".resolved", ".dropped", ".expired" and
+ * ".rejected" counters.
+ */
+public class PendingDossierPoller {
+    private static final Logger LOGGER = LogManager.getLogger(PendingDossierPoller.class);
+
+    static final String POLLS = "poller.polls";
+    static final String RESOLVED = "poller.resolved";
+    static final String DROPPED = "poller.dropped";
+    static final String EXPIRED = "poller.expired";
+    static final String REJECTED = "poller.rejected";
+
+    /**
+     * The period at which the due dossiers are looked for (milliseconds).
+     */
+    private static final long TICK = 1000;
+
+    private final boolean enabled;
+    private final long initialInterval;
+    private final long maxInterval;
+    private final long deadline;
+    private final int maxPending;
+    private final ScheduledExecutorService scheduler;
+    private final Executor workers;
+    private final LongSupplier clock;
+
+    private final Map<String, PendingDossier> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private HttpService httpService = HttpService.getInstance();
+    private Metrics metrics = Metrics.getInstance();
+
+    // --- Singleton Holder pattern + initialization BEGIN
+
+    /**
+     * @param enabled         false to ignore the dossiers to track
+     * @param initialInterval the time between the tracking of a dossier and its first poll (milliseconds)
+     * @param maxInterval     the upper bound of the time between two polls of a dossier (milliseconds)
+     * @param deadline        the time after which a dossier is not polled anymore (milliseconds)
+     * @param maxPending      the maximum number of dossiers tracked at the same time
+     * @param scheduler       the scheduler looking for the due dossiers
+     * @param workers         the pool running the polls
+     * @param clock           the current time (milliseconds)
+     */
+    PendingDossierPoller(boolean enabled, long initialInterval, long maxInterval, long deadline, int maxPending
+            , ScheduledExecutorService scheduler, Executor workers, LongSupplier clock) {
+        this.enabled = enabled;
+        this.initialInterval = initialInterval;
+        this.maxInterval = maxInterval;
+        this.deadline = deadline;
+        this.maxPending = maxPending;
+        this.scheduler = scheduler;
+        this.workers = workers;
+        this.clock = clock;
+    }
+
+    private static class Holder {
+        private static final PendingDossierPoller instance = create();
+
+        private static PendingDossierPoller create() {
+            ConfigProperties config = ConfigProperties.getInstance();
+            try {
+                int threads = Integer.parseInt(config.get("poller.threads"));
+                int maxPending = Integer.parseInt(config.get("poller.maxPending"));
+                return new PendingDossierPoller(Boolean.parseBoolean(config.get("poller.enabled"))
+                        , Integer.parseInt(config.get("poller.initialInterval")) * 1000L
+                        , Integer.parseInt(config.get("poller.maxInterval")) * 1000L
+                        , Integer.parseInt(config.get("poller.deadline")) * 1000L
+                        , maxPending
+                        , Executors.newSingleThreadScheduledExecutor(r -> {
+                            Thread thread = new Thread(r, "ppewshop-poller-scheduler");
+                            thread.setDaemon(true);
+                            return thread;
+                        })
+                        , workers(threads, maxPending)
+                        , System::currentTimeMillis);
+            } catch (NumberFormatException e) {
+                throw new PluginException("plugin error: poller.* properties must be integers", e);
+            }
+        }
+    }
+
+    public static PendingDossierPoller getInstance() {
+        return Holder.instance;
+    }
+    // --- Singleton Holder pattern + initialization END
+
+    /**
+     * The worker threads are created on demand, and stop after a minute without any dossier to poll.
+     */
+    private static ThreadPoolExecutor workers(int threads, int queueSize) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS
+                , new ArrayBlockingQueue<>(Math.max(1, queueSize)), r -> {
+            Thread thread = new Thread(r, "ppewshop-poller-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Start polling a dossier the partner is still studying. A dossier already tracked is left as it is.
+     *
+     * @param configuration the configuration of the checkStatus calls
+     * @param request       the checkStatus request of the dossier
+     * @return true if the dossier is tracked by this call
+     */
+    public boolean track(RequestConfiguration configuration, CheckStatusRequest request) {
+        if (!enabled) {
+            return false;
+        }
+
+        String merchant = merchant(request);
+        String key = merchant + "/" + request.getCheckStatusIn().getTransactionId();
+        if (pending.containsKey(key)) {
+            return false;
+        }
+        if (pending.size() >= maxPending) {
+            metrics.increment(REJECTED);
+            return false;
+        }
+
+        long now = clock.getAsLong();
+        PendingDossier dossier = new PendingDossier(configuration, request, merchant, now + initialInterval, now + deadline);
+        if (pending.putIfAbsent(key, dossier) != null) {
+            return false;
+        }
+
+        this.startScheduler();
+        return true;
+    }
+
+    /**
+     * Stop polling a dossier, whose final status is known otherwise.
+     *
+     * @param request the checkStatus request of the dossier
+     * @return true if the dossier was tracked
+     */
+    public boolean untrack(CheckStatusRequest request) {
+        return pending.remove(merchant(request) + "/" + request.getCheckStatusIn().getTransactionId()) != null;
+    }
+
+    private static String merchant(CheckStatusRequest request) {
+        MerchantInformation merchantInformation = request.getCheckStatusIn().getMerchantInformation();
+        return merchantInformation == null ? ""
+                : merchantInformation.getMerchantCode() + "/" + merchantInformation.getDistributorNumber();
+    }
+
+    /**
+     * The scheduler thread is only started once a dossier is tracked.
+     */
+    private void startScheduler() {
+        if (started.compareAndSet(false, true)) {
+            scheduler.scheduleWithFixedDelay(this::tick, TICK, TICK, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Hand the due dossiers to the workers, in one batch per merchant.
+     */
+    void tick() {
+        try {
+            long now = clock.getAsLong();
+            Map<String, List<Map.Entry<String, PendingDossier>>> batches = new HashMap<>();
+            for (Map.Entry<String, PendingDossier> entry : pending.entrySet()) {
+                PendingDossier dossier = entry.getValue();
+                if (!dossier.polling && dossier.nextPoll <= now) {
+                    dossier.polling = true;
+                    batches.computeIfAbsent(dossier.merchant, k -> new ArrayList<>()).add(entry);
+                }
+            }
+
+            for (List<Map.Entry<String, PendingDossier>> batch : batches.values()) {
+                try {
+                    workers.execute(() -> this.poll(batch));
+                } catch (RejectedExecutionException e) {
+                    // the workers are busy: the batch will be due again on the next tick
+                    batch.forEach(entry -> entry.getValue().polling = false);
+                }
+            }
+        } catch (RuntimeException e) {
+            // the scheduler must survive anything
+            LOGGER.error("Unable to poll the pending dossiers", e);
+        }
+    }
+
+    private void poll(List<Map.Entry<String, PendingDossier>> batch) {
+        for (Map.Entry<String, PendingDossier> entry : batch) {
+            PendingDossier dossier = entry.getValue();
+            String outcome;
+            try {
+                metrics.increment(POLLS);
+                CheckStatusResponse response = httpService.checkStatus(dossier.configuration, dossier.request);
+                outcome = response.getCheckStatusOut().getStatusCode() != CheckStatusOut.StatusCode.E ? RESOLVED : null;
+            } catch (TooManyCallsException e) {
+                // the call has not been sent: polled again later, when the merchant has fewer calls in progress
+                LOGGER.info("Pending dossier {} not polled: {}", entry.getKey(), e.getMessage());
+                outcome = null;
+            } catch (BusinessException e) {
+                // the partner answered: the dossier cannot be polled (unknown transaction, wrong merchant...)
+                LOGGER.warn("Pending dossier {} not polled anymore: {}", entry.getKey(), e.getErrorCode());
+                outcome = DROPPED;
+            } catch (RuntimeException e) {
+                // technical error, or circuit open: polled again later
+                LOGGER.warn("Unable to poll the pending dossier {}", entry.getKey(), e);
+                outcome = null;
+            }
+
+            if (outcome != null) {
+                pending.remove(entry.getKey(), dossier);
+                metrics.increment(outcome);
+            } else {
+                this.reschedule(entry.getKey(), dossier);
+            }
+        }
+    }
+
+    private void reschedule(String key, PendingDossier dossier) {
+        long now = clock.getAsLong();
+        dossier.interval = Math.min(Math.max(dossier.interval * 2, TICK), maxInterval);
+        if (now + dossier.interval > dossier.deadline) {
+            pending.remove(key, dossier);
+            metrics.increment(EXPIRED);
+        } else {
+            dossier.nextPoll = now + dossier.interval;
+            dossier.polling = false;
+        }
+    }
+
+    /**
+     * @return the number of dossiers currently tracked
+     */
+    public int size() {
+        return pending.size();
+    }
+
+    private class PendingDossier {
+        private final RequestConfiguration configuration;
+        private final CheckStatusRequest request;
+        private final String merchant;
+        private final long deadline;
+        private volatile long nextPoll;
+        private volatile long interval;
+        private volatile boolean polling;
+
+        PendingDossier(RequestConfiguration configuration, CheckStatusRequest request, String merchant
+                , long nextPoll, long deadline) {
+            this.configuration = configuration;
+            this.request = request;
+            this.merchant = merchant;
+            this.nextPoll = nextPoll;
+            this.deadline = deadline;
+            this.interval = initialInterval;
+        }
+    }
+
+}
@@ -11,6 +11,7 @@ import com.payline.payment.ppewshop.exception.PluginException;
 import com.payline.payment.ppewshop.service.HttpService;
 import com.payline.payment.ppewshop.utils.Constants;
 import com.payline.payment.ppewshop.utils.PluginUtils;
+import com.payline.payment.ppewshop.utils.WarmUp;
 import com.payline.payment.ppewshop.utils.i18n.I18nService;
 import com.payline.payment.ppewshop.utils.properties.ReleaseProperties;
 import com.payline.pmapi.bean.configuration.ReleaseInformation;
@@ -61,6 +62,10 @@ public class ConfigurationServiceImpl implements ConfigurationService {
     private static final String ESP_KEY = "ESP";
     private static final String ESP_VAL = "country.esp";
 
+    public ConfigurationServiceImpl() {
+        WarmUp.getInstance().start();
+    }
+
     @Override
     public List<AbstractParameter> getParameters(Locale locale) {
         List<AbstractParameter> parameters = new ArrayList<>();
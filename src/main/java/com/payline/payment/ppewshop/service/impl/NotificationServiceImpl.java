@@ -11,28 +11,38 @@ import com.payline.payment.ppewshop.bean.request.CheckStatusRequest;
 import com.payline.payment.ppewshop.bean.response.CheckStatusResponse;
 import com.payline.payment.ppewshop.exception.InvalidDataException;
 import com.payline.payment.ppewshop.exception.PluginException;
+import com.payline.payment.ppewshop.exception.TooManyCallsException;
 import com.payline.payment.ppewshop.service.HttpService;
+import com.payline.payment.ppewshop.service.NotificationVerifier;
+import com.payline.payment.ppewshop.service.PendingDossierPoller;
 import com.payline.payment.ppewshop.utils.Constants;
 import com.payline.payment.ppewshop.utils.PluginUtils;
+import com.payline.payment.ppewshop.utils.TransactionDeIdScanner;
+import com.payline.payment.ppewshop.utils.WarmUp;
 import com.payline.pmapi.bean.common.FailureCause;
 import com.payline.pmapi.bean.notification.request.NotificationRequest;
 import com.payline.pmapi.bean.notification.response.NotificationResponse;
+import com.payline.pmapi.bean.payment.ContractConfiguration;
 import com.payline.pmapi.bean.payment.request.NotifyTransactionStatusRequest;
 import com.payline.pmapi.logger.LogManager;
 import com.payline.pmapi.service.NotificationService;
 import org.apache.logging.log4j.Logger;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
 
 public class NotificationServiceImpl implements NotificationService {
     private static final Logger LOGGER = LogManager.getLogger(NotificationServiceImpl.class);
     private HttpService httpService = HttpService.getInstance();
+    private PendingDossierPoller pendingDossierPoller = PendingDossierPoller.getInstance();
+    private NotificationVerifier notificationVerifier = NotificationVerifier.getInstance();
 
-    private static final Pattern pattern = Pattern.compile("transactionDeId=(.{13})");
     public static final int CREATED = 204;
 
 
+    public NotificationServiceImpl() {
+        WarmUp.getInstance().start();
+    }
+
     @Override
     public NotificationResponse parse(NotificationRequest request) {
         NotificationResponse notificationResponse;
@@ -52,10 +62,10 @@ public class NotificationServiceImpl implements NotificationService {
         try {
             // get the partner transactionId
             partnerTransactionId = getTransactionIdFromURL(request.getPathInfo());
-            CheckStatusRequest checkStatusRequest = createCheckStatusRequest(request, partnerTransactionId);
+            CheckStatusRequest checkStatusRequest = createCheckStatusRequest(request.getContractConfiguration(), partnerTransactionId);
 
-            // do the http call to get the final status
-            CheckStatusResponse checkStatusResponse = httpService.checkStatus(configuration, checkStatusRequest);
+            // the repeats of a final status are answered by the status cache of the HttpService
+            CheckStatusResponse checkStatusResponse = this.checkStatus(configuration, checkStatusRequest);
 
             // check the status and create the right notificationResponse
             notificationResponse = createNotificationResponseFromStatusCode(transactionId
@@ -73,9 +83,76 @@ public class NotificationServiceImpl implements NotificationService {
         return notificationResponse;
     }
 
+    /**
+     * Get the status of a notified transaction: verified in the background if possible, by the partner otherwise.
+     */
+    private CheckStatusResponse checkStatus(RequestConfiguration configuration, CheckStatusRequest checkStatusRequest) {
+        String partnerTransactionId = checkStatusRequest.getCheckStatusIn().getTransactionId();
+        try {
+            CompletableFuture<CheckStatusResponse> verification = notificationVerifier.verifyAsync(configuration, checkStatusRequest);
+            if (verification == null) {
+                // do the http call to get the final status
+                return httpService.checkStatus(configuration, checkStatusRequest);
+            }
+            if (!verification.isDone()) {
+                // acknowledged at once: the status is verified in the background, and given to the next notification
+                return inProgress(partnerTransactionId);
+            }
+            // already answered, e.g. by the status cache
+            return PluginUtils.join(verification);
+        } catch (TooManyCallsException e) {
+            // the status is not known yet: it will be given by the next notification
+            LOGGER.warn("Status of the notified transaction {} not checked: {}", partnerTransactionId, e.getMessage());
+            return inProgress(partnerTransactionId);
+        }
+    }
+
+    /**
+     * @return a response stating that the partner is still studying the transaction
+     */
+    private static CheckStatusResponse inProgress(String partnerTransactionId) {
+        return new CheckStatusResponse(CheckStatusOut.Builder.aCheckStatusOut()
+                .withTransactionId(partnerTransactionId)
+                .withStatusCode(CheckStatusOut.StatusCode.E)
+                .build());
+    }
+
+    /**
+     * Record the final status of the transaction in Payline: the plugin does not poll it anymore, and its cached
+     * partner status is kept if Payline agrees with it, or forgotten otherwise.
+     */
     @Override
     public void notifyTransactionStatus(NotifyTransactionStatusRequest notifyTransactionStatusRequest) {
-        // does nothing
+        String partnerTransactionId = notifyTransactionStatusRequest.getPartnerTransactionId();
+        if (PluginUtils.isEmpty(partnerTransactionId)) {
+            LOGGER.info("No partner transaction id: nothing to record");
+            return;
+        }
+
+        try {
+            CheckStatusRequest checkStatusRequest = createCheckStatusRequest(notifyTransactionStatusRequest.getContractConfiguration()
+                    , partnerTransactionId);
+            pendingDossierPoller.untrack(checkStatusRequest);
+            httpService.onPaylineDecision(notifyTransactionStatusRequest.getPartnerConfiguration(), checkStatusRequest
+                    , isAccepted(notifyTransactionStatusRequest.getTransactionSatus()));
+        } catch (RuntimeException e) {
+            // only an optimization: Payline must not be affected
+            LOGGER.error("Unable to record the status of the transaction {}", partnerTransactionId, e);
+        }
+    }
+
+    /**
+     * @param transactionStatus the status of the transaction in Payline, one of {@link Constants.PaylineTransactionStatus}
+     * @return true if the transaction is accepted, false if it failed, null if it is still on hold or the status unknown
+     */
+    static Boolean isAccepted(String transactionStatus) {
+        if (Constants.PaylineTransactionStatus.SUCCESS.equals(transactionStatus)) {
+            return Boolean.TRUE;
+        }
+        if (Constants.PaylineTransactionStatus.FAILURE.equals(transactionStatus)) {
+            return Boolean.FALSE;
+        }
+        return null;
     }
 
     private NotificationResponse createNotificationResponseFromStatusCode(String transactionId
@@ -104,11 +181,11 @@ public class NotificationServiceImpl implements NotificationService {
         return notificationResponse;
     }
 
-    private CheckStatusRequest createCheckStatusRequest(NotificationRequest request, String partnerTransactionId) {
+    private CheckStatusRequest createCheckStatusRequest(ContractConfiguration contractConfiguration, String partnerTransactionId) {
         MerchantInformation merchantInformation = MerchantInformation.Builder.aMerchantInformation()
-                .withMerchantCode(request.getContractConfiguration().getProperty(Constants.ContractConfigurationKeys.MERCHANT_CODE).getValue())
-                .withDistributorNumber(request.getContractConfiguration().getProperty(Constants.ContractConfigurationKeys.DISTRIBUTOR_NUMBER).getValue())
-                .withCountryCode(request.getContractConfiguration().getProperty(Constants.ContractConfigurationKeys.COUNTRY_CODE).getValue())
+                .withMerchantCode(contractConfiguration.getProperty(Constants.ContractConfigurationKeys.MERCHANT_CODE).getValue())
+                .withDistributorNumber(contractConfiguration.getProperty(Constants.ContractConfigurationKeys.DISTRIBUTOR_NUMBER).getValue())
+                .withCountryCode(contractConfiguration.getProperty(Constants.ContractConfigurationKeys.COUNTRY_CODE).getValue())
                 .build();
 
         CheckStatusIn checkStatusIn = CheckStatusIn.Builder
@@ -122,7 +199,7 @@ public class NotificationServiceImpl implements NotificationService {
 
     /**
      * Search the transactionId in the given url
-     * transactionId is 13 length and preceded by "transactionDeId="
+     * transactionId is made of 13 letters or digits and preceded by "transactionDeId="
      *
      * @param url the url where the transactionIs is
      * @return the transactionId
@@ -132,11 +209,10 @@ public class NotificationServiceImpl implements NotificationService {
             throw new InvalidDataException("No url to parse");
         }
 
-        Matcher matcher = pattern.matcher(url);
-        if (matcher.find()) {
-            return matcher.group(1);
-        } else {
+        String transactionId = TransactionDeIdScanner.find(url);
+        if (transactionId == null) {
             throw new InvalidDataException("No transactionId in url");
         }
+        return transactionId;
     }
 }
@@ -1,6 +1,7 @@
 package com.payline.payment.ppewshop.service.impl;
 
 import com.payline.payment.ppewshop.service.LogoPaymentFormConfigurationService;
+import com.payline.payment.ppewshop.utils.WarmUp;
 import com.payline.payment.ppewshop.utils.i18n.I18nService;
 import com.payline.pmapi.bean.paymentform.bean.form.NoFieldForm;
 import com.payline.pmapi.bean.paymentform.request.PaymentFormConfigurationRequest;
@@ -13,6 +14,10 @@ public class PaymentFormConfigurationServiceImpl extends LogoPaymentFormConfigur
 
     private I18nService i18n = I18nService.getInstance();
 
+    public PaymentFormConfigurationServiceImpl() {
+        WarmUp.getInstance().start();
+    }
+
     @Override
     public PaymentFormConfigurationResponse getPaymentFormConfiguration(PaymentFormConfigurationRequest paymentFormConfigurationRequest) {
         NoFieldForm noFieldForm = NoFieldForm.NoFieldFormBuilder.aNoFieldForm()
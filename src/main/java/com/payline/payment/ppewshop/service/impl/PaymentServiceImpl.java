@@ -10,6 +10,7 @@ import com.payline.payment.ppewshop.service.HttpService;
 import com.payline.payment.ppewshop.utils.Constants;
 import com.payline.payment.ppewshop.utils.GoodsCodeBusiness;
 import com.payline.payment.ppewshop.utils.PluginUtils;
+import com.payline.payment.ppewshop.utils.WarmUp;
 import com.payline.pmapi.bean.common.Buyer;
 import com.payline.pmapi.bean.common.FailureCause;
 import com.payline.pmapi.bean.payment.Order;
@@ -36,6 +37,10 @@ public class PaymentServiceImpl implements PaymentService {
     private static final int MERCHANT_ORDER_ID_LENGTH = 13;
 
 
+    public PaymentServiceImpl() {
+        WarmUp.getInstance().start();
+    }
+
     @Override
     public PaymentResponse paymentRequest(PaymentRequest request) {
         PaymentResponse response;
@@ -7,9 +7,12 @@ import com.payline.payment.ppewshop.bean.configuration.RequestConfiguration;
 import com.payline.payment.ppewshop.bean.request.CheckStatusRequest;
 import com.payline.payment.ppewshop.bean.response.CheckStatusResponse;
 import com.payline.payment.ppewshop.exception.PluginException;
+import com.payline.payment.ppewshop.exception.TooManyCallsException;
 import com.payline.payment.ppewshop.service.HttpService;
+import com.payline.payment.ppewshop.service.PendingDossierPoller;
 import com.payline.payment.ppewshop.utils.Constants;
 import com.payline.payment.ppewshop.utils.PluginUtils;
+import com.payline.payment.ppewshop.utils.WarmUp;
 import com.payline.pmapi.bean.common.FailureCause;
 import com.payline.pmapi.bean.common.OnHoldCause;
 import com.payline.pmapi.bean.payment.request.RedirectionPaymentRequest;
@@ -31,6 +34,11 @@ public class PaymentWithRedirectionServiceImpl implements PaymentWithRedirection
     private static final Logger LOGGER = LogManager.getLogger(PaymentWithRedirectionServiceImpl.class);
 
     private HttpService httpService = HttpService.getInstance();
+    private PendingDossierPoller pendingDossierPoller = PendingDossierPoller.getInstance();
+
+    public PaymentWithRedirectionServiceImpl() {
+        WarmUp.getInstance().start();
+    }
 
     @Override
     public PaymentResponse finalizeRedirectionPayment(RedirectionPaymentRequest request) {
@@ -75,12 +83,9 @@ public class PaymentWithRedirectionServiceImpl implements PaymentWithRedirection
                             , checkStatusResponse.getCheckStatusOut().getCreditAuthorizationNumber());
                     break;
                 case E:
-                    paymentResponse = PaymentResponseOnHold.PaymentResponseOnHoldBuilder.aPaymentResponseOnHold()
-                            .withPartnerTransactionId(transactionId)
-                            .withStatusCode(statusCode.name())
-                            .withBuyerPaymentId(Email.EmailBuilder.anEmail().withEmail(email).build())
-                            .withOnHoldCause(OnHoldCause.INPROGRESS_PARTNER)
-                            .build();
+                    // the final status is looked for in the background, ready for the next call
+                    pendingDossierPoller.track(configuration, checkStatusRequest);
+                    paymentResponse = createPaymentResponseOnHold(transactionId, statusCode.name(), email);
                     break;
                 case I:
                     paymentResponse = createResponseRedirect(transactionId
@@ -104,6 +109,10 @@ public class PaymentWithRedirectionServiceImpl implements PaymentWithRedirection
             paymentResponse = createPaymentResponseFailure(transactionId
                     , PluginUtils.truncate(errorMessage, PluginException.ERROR_CODE_MAX_LENGTH)
                     , FailureCause.INVALID_DATA);
+        } catch (TooManyCallsException e) {
+            // the status is not known yet: it will be asked again, none is reported until then
+            LOGGER.warn("Status of the transaction {} not checked: {}", transactionId, e.getMessage());
+            paymentResponse = createPaymentResponseOnHold(transactionId, null, email);
         } catch (PluginException e) {
             paymentResponse = e.toPaymentResponseFailureBuilder().build();
         } catch (RuntimeException e) {
@@ -144,6 +153,16 @@ public class PaymentWithRedirectionServiceImpl implements PaymentWithRedirection
                 .build();
     }
 
+    private PaymentResponseOnHold createPaymentResponseOnHold(String partnerTransactionId, String statusCode, String email) {
+        return PaymentResponseOnHold.PaymentResponseOnHoldBuilder
+                .aPaymentResponseOnHold()
+                .withPartnerTransactionId(partnerTransactionId)
+                .withStatusCode(statusCode)
+                .withBuyerPaymentId(Email.EmailBuilder.anEmail().withEmail(email).build())
+                .withOnHoldCause(OnHoldCause.INPROGRESS_PARTNER)
+                .build();
+    }
+
     private PaymentResponseRedirect createResponseRedirect(String partnerTransactionId, CheckStatusOut.StatusCode  statusCode, String url) throws MalformedURLException {
         PaymentResponseRedirect.RedirectionRequest redirectionRequest = PaymentResponseRedirect.RedirectionRequest.RedirectionRequestBuilder
                 .aRedirectionRequest()
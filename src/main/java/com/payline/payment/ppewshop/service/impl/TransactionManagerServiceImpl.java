@@ -1,5 +1,6 @@
 package com.payline.payment.ppewshop.service.impl;
 
+import com.payline.payment.ppewshop.utils.WarmUp;
 import com.payline.pmapi.service.TransactionManagerService;
 
 import java.util.HashMap;
@@ -7,6 +8,10 @@ import java.util.Map;
 
 public class TransactionManagerServiceImpl implements TransactionManagerService {
 
+    public TransactionManagerServiceImpl() {
+        WarmUp.getInstance().start();
+    }
+
     @Override
     public Map<String, String> readAdditionalData(String s, String s1) {
         return new HashMap<>();
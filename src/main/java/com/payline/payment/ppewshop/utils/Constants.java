@@ -42,6 +42,22 @@ public class Constants {
         }
     }
 
+    /**
+     * Values of the transaction status notified by Payline (NotifyTransactionStatusRequest).
+     * The pmapi passes it as a plain String, without any enum or documented values: these are named after its
+     * SuccessTransactionStatus, FailureTransactionStatus and OnHoldTransactionStatus, and any other value is treated
+     * as unknown.
+     */
+    public static class PaylineTransactionStatus {
+        public static final String SUCCESS = "SUCCESS";
+        public static final String FAILURE = "FAILURE";
+        public static final String ON_HOLD = "ONHOLD";
+
+        /* Static utility class : no need to instantiate it (Sonar bug fix) */
+        private PaylineTransactionStatus() {
+        }
+    }
+
     /* Static utility class : no need to instantiate it (Sonar bug fix) */
     private Constants() {
     }
@@ -11,6 +11,8 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.util.Currency;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 public class PluginUtils {
@@ -72,4 +74,25 @@ public class PluginUtils {
         return url.replace("&amp;", "&");
     }
 
-}
\ No newline at end of file
+    /**
+     * Wait for the result of an asynchronous call.
+     * Unlike {@link CompletableFuture#join()}, the failure of the call is thrown as is, not wrapped into a {@link CompletionException}.
+     *
+     * @param future the future to wait for
+     * @return the result of the future
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new PluginException("plugin error: asynchronous call failed", (Exception) cause);
+        }
+    }
+
+}
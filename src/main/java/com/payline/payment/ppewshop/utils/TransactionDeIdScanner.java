@@ -0,0 +1,54 @@
+package com.payline.payment.ppewshop.utils;
+
+/**
+ * Find the partner transaction id in the URL of a notification: the {@value #LENGTH} letters or digits following
+ * "transactionDeId=".
+ * <p>
+ * It replaces a regular expression on the notification path: the URL is scanned in place, and the only allocation
+ * is the returned id.
+ */
+public class TransactionDeIdScanner {
+
+    public static final int LENGTH = 13;
+
+    private static final String PARAMETER = "transactionDeId=";
+
+    private TransactionDeIdScanner() {
+    }
+
+    /**
+     * @param url the URL to scan
+     * @return the first valid transaction id of the URL, or null if there is none
+     */
+    public static String find(String url) {
+        if (url == null) {
+            return null;
+        }
+
+        int from = 0;
+        int index;
+        while ((index = url.indexOf(PARAMETER, from)) >= 0) {
+            int start = index + PARAMETER.length();
+            if (isValid(url, start)) {
+                return url.substring(start, start + LENGTH);
+            }
+            // an invalid value can be followed by a valid one
+            from = index + 1;
+        }
+        return null;
+    }
+
+    private static boolean isValid(String url, int start) {
+        if (url.length() - start < LENGTH) {
+            return false;
+        }
+        for (int i = start; i < start + LENGTH; i++) {
+            char c = url.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,197 @@
+package com.payline.payment.ppewshop.utils;
+
+import com.payline.payment.ppewshop.bean.common.CheckStatusIn;
+import com.payline.payment.ppewshop.bean.common.CustomerInformation;
+import com.payline.payment.ppewshop.bean.common.InitDossierIn;
+import com.payline.payment.ppewshop.bean.common.MerchantConfiguration;
+import com.payline.payment.ppewshop.bean.common.MerchantInformation;
+import com.payline.payment.ppewshop.bean.common.MerchantOrderReference;
+import com.payline.payment.ppewshop.bean.common.OrderInformation;
+import com.payline.payment.ppewshop.bean.request.CheckStatusRequest;
+import com.payline.payment.ppewshop.bean.request.InitDossierRequest;
+import com.payline.payment.ppewshop.bean.response.CheckStatusResponse;
+import com.payline.payment.ppewshop.bean.response.InitDossierResponse;
+import com.payline.payment.ppewshop.bean.response.PpewShopResponseKO;
+import com.payline.payment.ppewshop.utils.http.HttpClient;
+import com.payline.payment.ppewshop.utils.i18n.I18nService;
+import com.payline.payment.ppewshop.utils.metrics.Metrics;
+import com.payline.payment.ppewshop.utils.properties.ConfigProperties;
+import com.payline.payment.ppewshop.utils.xml.PartnerResponseDecoder;
+import com.payline.payment.ppewshop.utils.xml.XmlSerializer;
+import com.payline.pmapi.logger.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pay upfront, once per plugin load, what the first payment would pay otherwise: the HTTP client and its TLS
+ * initialization, the Jackson mappers introspection, the XML factories and the resource bundles.
+ * Sample payloads go through the same serialization and decoding paths as the real calls, without any network
+ * exchange.
+ * <p>
+ * Opt-in ("warmUp.enabled"), the warm-up is started in the background when the services are instantiated, and its
+ * duration is logged and recorded in the "warmUp.duration" counter (milliseconds). A failing step does not prevent
+ * the next ones: the failed steps are logged, and counted in the "warmUp.failed" counter.
+ */
+public class WarmUp {
+    private static final Logger LOGGER = LogManager.getLogger(WarmUp.class);
+
+    static final String DURATION = "warmUp.duration";
+    static final String FAILED = "warmUp.failed";
+
+    private static final String CHECK_STATUS_RESPONSE = "<checkStatusResponse xmlns=\"urn:PPEWShopServiceV3\">" +
+            "<checkStatusOut>" +
+            "<transactionId>0000000000</transactionId>" +
+            "<merchandOrderReference><merchandOrderId>0000000000000</merchandOrderId></merchandOrderReference>" +
+            "<statusCode>A</statusCode>" +
+            "<redirectionUrl>https://localhost</redirectionUrl>" +
+            "<creditAuthorizationNumber>00000000</creditAuthorizationNumber>" +
+            "</checkStatusOut>" +
+            "</checkStatusResponse>";
+
+    private static final String INIT_DOSSIER_RESPONSE = "<initDossierResponse xmlns=\"urn:PPEWShopServiceV3\">" +
+            "<initDossierOut>" +
+            "<transactionId>0000000000</transactionId>" +
+            "<redirectionUrl>https://localhost</redirectionUrl>" +
+            "</initDossierOut>" +
+            "</initDossierResponse>";
+
+    private static final String ERROR_RESPONSE = "<axis2ns1:PPEWShopServiceException xmlns:axis2ns1=\"urn:PPEWShopServiceV3\">" +
+            "<axis2ns1:errorCode>21999</axis2ns1:errorCode>" +
+            "<axis2ns1:errorDescription>warm-up</axis2ns1:errorDescription>" +
+            "</axis2ns1:PPEWShopServiceException>";
+
+    private final boolean enabled;
+    private final Executor executor;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private Metrics metrics = Metrics.getInstance();
+
+    // --- Singleton Holder pattern + initialization BEGIN
+
+    /**
+     * @param enabled  false to skip the warm-up
+     * @param executor runs the warm-up in the background
+     */
+    WarmUp(boolean enabled, Executor executor) {
+        this.enabled = enabled;
+        this.executor = executor;
+    }
+
+    private static class Holder {
+        private static final WarmUp instance = new WarmUp(Boolean.parseBoolean(ConfigProperties.getInstance().get("warmUp.enabled"))
+                , task -> {
+            Thread thread = new Thread(task, "ppewshop-warmup");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    public static WarmUp getInstance() {
+        return Holder.instance;
+    }
+    // --- Singleton Holder pattern + initialization END
+
+    /**
+     * Start the warm-up in the background, if it is enabled and has not been started yet.
+     *
+     * @return true if the warm-up has been started by this call
+     */
+    public boolean start() {
+        if (!enabled || !started.compareAndSet(false, true)) {
+            return false;
+        }
+        executor.execute(this::run);
+        return true;
+    }
+
+    /**
+     * Run every step of the warm-up. A failing step is logged, and does not prevent the next ones.
+     *
+     * @return the names of the steps which failed
+     */
+    List<String> run() {
+        long start = System.nanoTime();
+        List<String> failed = new ArrayList<>();
+
+        this.step(failed, "HTTP client and TLS", () -> HttpClient.getInstance().warmUpSsl());
+        this.step(failed, "request serialization", () -> {
+            XmlSerializer.getInstance().toBytes(aCheckStatusRequest());
+            XmlSerializer.getInstance().toBytes(anInitDossierRequest());
+        });
+        this.step(failed, "response decoding", () -> {
+            // the streaming decoders, and the Jackson mappers used as fallback or directly
+            PartnerResponseDecoder.decodeCheckStatus(stream(CHECK_STATUS_RESPONSE));
+            PartnerResponseDecoder.decodeCheckStatus(stream(ERROR_RESPONSE));
+            PartnerResponseDecoder.decodeInitDossier(stream(INIT_DOSSIER_RESPONSE));
+            CheckStatusResponse.fromXml(CHECK_STATUS_RESPONSE);
+            InitDossierResponse.fromXml(INIT_DOSSIER_RESPONSE);
+            PpewShopResponseKO.fromXml(ERROR_RESPONSE);
+        });
+        this.step(failed, "resource bundles", () -> {
+            I18nService.getInstance().getMessage("paymentMethod.name", Locale.FRENCH);
+            I18nService.getInstance().getMessage("paymentMethod.name", Locale.ENGLISH);
+        });
+
+        long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        metrics.add(DURATION, duration);
+        if (failed.isEmpty()) {
+            LOGGER.info("Plugin warm-up done in {} ms", duration);
+        } else {
+            LOGGER.warn("Plugin warm-up done in {} ms, failed steps: {}", duration, failed);
+        }
+        return failed;
+    }
+
+    private void step(List<String> failed, String name, Step step) {
+        try {
+            step.run();
+        } catch (Exception e) {
+            LOGGER.warn("Warm-up of the {} failed", name, e);
+            metrics.increment(FAILED);
+            failed.add(name);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        void run() throws Exception;
+    }
+
+    private static CheckStatusRequest aCheckStatusRequest() {
+        return new CheckStatusRequest(CheckStatusIn.Builder.aCheckStatusIn()
+                .withMerchantInformation(aMerchantInformation())
+                .withTransactionId("0000000000")
+                .build());
+    }
+
+    private static InitDossierRequest anInitDossierRequest() {
+        return new InitDossierRequest(InitDossierIn.Builder.anInitDossier()
+                .withMerchantInformation(aMerchantInformation())
+                .withMerchantConfiguration(MerchantConfiguration.Builder.aMerchantConfiguration().build())
+                .withCustomerInformation(CustomerInformation.Builder.aCustomerInformation().build())
+                .withOrderInformation(OrderInformation.Builder.anOrderInformation().build())
+                .withMerchantOrderReference(MerchantOrderReference.Builder.aMerchantOrderReference().build())
+                .build());
+    }
+
+    private static MerchantInformation aMerchantInformation() {
+        return MerchantInformation.Builder.aMerchantInformation()
+                .withMerchantCode("0000000000")
+                .withDistributorNumber("0000000000")
+                .withCountryCode("FRA")
+                .build();
+    }
+
+    private static ByteArrayInputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
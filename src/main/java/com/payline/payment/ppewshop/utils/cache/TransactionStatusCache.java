@@ -0,0 +1,175 @@
+package com.payline.payment.ppewshop.utils.cache;
+
+import com.payline.payment.ppewshop.bean.common.CheckStatusOut;
+import com.payline.payment.ppewshop.bean.common.MerchantOrderReference;
+import com.payline.payment.ppewshop.bean.response.CheckStatusResponse;
+import com.payline.payment.ppewshop.utils.metrics.Metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory cache of the checkStatus responses of the finished partner transactions.
+ * Only the terminal statuses (accepted, refused, cancelled) are kept: they never change, so a finished transaction
+ * can be answered without calling the partner again, until its entry expires.
+ * <p>
+ * The final decision of Payline about a transaction confirms its entry, which is then kept for another time to live
+ * from the decision, or invalidates it.
+ * <p>
+ * The cache is bounded: beyond its maximum size, the least recently used entry is evicted.
+ * The responses are copied in and out: a caller modifying the response it got does not modify the cache.
+ * Its activity is counted in the "cache.transactionStatus.hit", ".miss", ".eviction", ".expired", ".confirmed" and
+ * ".invalidated" counters.
+ */
+public class TransactionStatusCache {
+
+    static final String HIT = "cache.transactionStatus.hit";
+    static final String MISS = "cache.transactionStatus.miss";
+    static final String EVICTION = "cache.transactionStatus.eviction";
+    static final String EXPIRED = "cache.transactionStatus.expired";
+    static final String CONFIRMED = "cache.transactionStatus.confirmed";
+    static final String INVALIDATED = "cache.transactionStatus.invalidated";
+
+    private final int maxSize;
+    private final long timeToLive;
+    private final LongSupplier clock;
+
+    private final Map<String, CachedStatus> entries;
+
+    private Metrics metrics = Metrics.getInstance();
+
+    /**
+     * @param maxSize    the maximum number of transactions kept, 0 to disable the cache
+     * @param timeToLive the time a status is kept after it has been obtained from the partner (milliseconds)
+     */
+    public TransactionStatusCache(int maxSize, long timeToLive) {
+        this(maxSize, timeToLive, System::currentTimeMillis);
+    }
+
+    TransactionStatusCache(int maxSize, long timeToLive, LongSupplier clock) {
+        this.maxSize = Math.max(0, maxSize);
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+        // access order: the first entry is the least recently used one
+        this.entries = new LinkedHashMap<String, CachedStatus>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatus> eldest) {
+                if (size() > TransactionStatusCache.this.maxSize) {
+                    metrics.increment(EVICTION);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param statusCode a status returned by the partner
+     * @return true if the status is final: the transaction will not change anymore
+     */
+    public static boolean isTerminal(CheckStatusOut.StatusCode statusCode) {
+        return statusCode == CheckStatusOut.StatusCode.A
+                || statusCode == CheckStatusOut.StatusCode.R
+                || statusCode == CheckStatusOut.StatusCode.C;
+    }
+
+    /**
+     * @param key the partner transaction
+     * @return the terminal status response of this transaction, or null if it is unknown or has expired
+     */
+    public synchronized CheckStatusResponse get(String key) {
+        if (maxSize == 0) {
+            return null;
+        }
+
+        CachedStatus entry = entries.get(key);
+        if (entry != null && clock.getAsLong() >= entry.expiresAt) {
+            entries.remove(key);
+            metrics.increment(EXPIRED);
+            entry = null;
+        }
+
+        metrics.increment(entry == null ? MISS : HIT);
+        return entry == null ? null : copy(entry.response);
+    }
+
+    /**
+     * Keep the response, if its status is terminal. Other statuses are ignored: they must be asked to the partner again.
+     *
+     * @param key      the partner transaction
+     * @param response the checkStatus response of this transaction
+     */
+    public synchronized void put(String key, CheckStatusResponse response) {
+        if (maxSize == 0 || response == null || response.getCheckStatusOut() == null
+                || !isTerminal(response.getCheckStatusOut().getStatusCode())) {
+            return;
+        }
+        entries.put(key, new CachedStatus(copy(response), clock.getAsLong() + timeToLive));
+    }
+
+    private static CheckStatusResponse copy(CheckStatusResponse response) {
+        CheckStatusOut checkStatusOut = response.getCheckStatusOut();
+        MerchantOrderReference merchantOrderReference = checkStatusOut.getMerchantOrderReference();
+        return new CheckStatusResponse(CheckStatusOut.Builder.aCheckStatusOut()
+                .withTransactionId(checkStatusOut.getTransactionId())
+                .withMerchantOrderReference(merchantOrderReference == null ? null
+                        : MerchantOrderReference.Builder.aMerchantOrderReference()
+                        .withMerchantOrderId(merchantOrderReference.getMerchantOrderId())
+                        .withMerchantRef(merchantOrderReference.getMerchantRef())
+                        .build())
+                .withStatusCode(checkStatusOut.getStatusCode())
+                .withCreditAuthorizationNumber(checkStatusOut.getCreditAuthorizationNumber())
+                .withRedirectionUrl(checkStatusOut.getRedirectionUrl())
+                .build());
+    }
+
+    /**
+     * Record the final decision of Payline about a transaction.
+     * If it agrees with the status in the cache, the entry expires a time to live after the decision, unless it was
+     * already set to expire later. Otherwise, or if the decision is unknown, the entry is removed: the next call asks
+     * the partner. An expired entry is not revived.
+     *
+     * @param key      the partner transaction
+     * @param accepted true if Payline accepted the transaction, false if it refused or cancelled it, null if unknown
+     */
+    public synchronized void onPaylineDecision(String key, Boolean accepted) {
+        CachedStatus entry = entries.get(key);
+        if (entry == null) {
+            return;
+        }
+        long now = clock.getAsLong();
+        if (now >= entry.expiresAt) {
+            entries.remove(key);
+            metrics.increment(EXPIRED);
+            return;
+        }
+
+        boolean partnerAccepted = entry.response.getCheckStatusOut().getStatusCode() == CheckStatusOut.StatusCode.A;
+        if (accepted != null && accepted == partnerAccepted) {
+            entries.put(key, new CachedStatus(entry.response, Math.max(entry.expiresAt, now + timeToLive)));
+            metrics.increment(CONFIRMED);
+        } else {
+            entries.remove(key);
+            metrics.increment(INVALIDATED);
+        }
+    }
+
+    /**
+     * @return the number of transactions in the cache, expired ones included
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static class CachedStatus {
+        private final CheckStatusResponse response;
+        private final long expiresAt;
+
+        CachedStatus(CheckStatusResponse response, long expiresAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+}
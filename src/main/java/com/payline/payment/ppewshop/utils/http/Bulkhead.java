@@ -0,0 +1,75 @@
+package com.payline.payment.ppewshop.utils.http;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Limit the partner calls of a single tenant, so that it cannot take every pooled connection from the others:
+ * a maximum number of calls in progress, and optionally a maximum rate (token bucket).
+ * Calls over the limits are rejected immediately, never queued.
+ */
+public class Bulkhead {
+
+    private final Semaphore inFlight;
+
+    // token bucket, disabled if the rate is 0
+    private final double tokensPerNano;
+    private final double capacity;
+    private final LongSupplier clock;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param maxConcurrentCalls the maximum number of calls in progress
+     * @param rate               the maximum sustained rate of calls, 0 for no limit (calls per second)
+     * @param burst              the maximum number of calls which can be sent at once above the rate
+     */
+    public Bulkhead(int maxConcurrentCalls, int rate, int burst) {
+        this(maxConcurrentCalls, rate, burst, System::nanoTime);
+    }
+
+    Bulkhead(int maxConcurrentCalls, int rate, int burst, LongSupplier clock) {
+        this.inFlight = new Semaphore(maxConcurrentCalls);
+        this.tokensPerNano = (double) rate / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = Math.max(1, burst);
+        this.clock = clock;
+        this.tokens = this.capacity;
+        this.lastRefill = clock.getAsLong();
+    }
+
+    /**
+     * Ask the permission to call the partner. A permitted call must then be reported with {@link #release()}.
+     *
+     * @return true if the call can be sent, false if it must be rejected.
+     */
+    public boolean tryAcquire() {
+        if (!inFlight.tryAcquire()) {
+            return false;
+        }
+        if (tokensPerNano > 0 && !this.tryConsumeToken()) {
+            inFlight.release();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Report the end of a permitted call.
+     */
+    public void release() {
+        inFlight.release();
+    }
+
+    private synchronized boolean tryConsumeToken() {
+        long now = clock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.payline.payment.ppewshop.utils.http;
+
+import com.payline.payment.ppewshop.utils.metrics.Metrics;
+import com.payline.pmapi.logger.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Stop calling an endpoint which keeps failing, instead of making every caller wait for the timeouts.
+ * <ul>
+ * <li>CLOSED: calls go through, their outcome is recorded in a window of the last calls. When the failure rate of the
+ * window reaches the threshold, the circuit opens.</li>
+ * <li>OPEN: calls are rejected without being sent, until the cool-down is over.</li>
+ * <li>HALF_OPEN: a few trial calls go through. If they all succeed the circuit closes, the first failure opens it again.</li>
+ * </ul>
+ * Only transport failures must be reported as failures: an error response means the endpoint is up.
+ */
+public class CircuitBreaker {
+    private static final Logger LOGGER = LogManager.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long openDuration;
+    private final int halfOpenCalls;
+    private final LongSupplier clock;
+
+    private Metrics metrics = Metrics.getInstance();
+
+    // outcome of the last calls (true for a failure), used as a ring buffer
+    private final boolean[] window;
+    private int windowCount;
+    private int windowIndex;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    /**
+     * @param name                 the name of the protected endpoint, for the logs
+     * @param windowSize           the number of last calls used to compute the failure rate
+     * @param minimumCalls         the number of calls to record before the failure rate is taken into account
+     * @param failureRateThreshold the failure rate opening the circuit (percent)
+     * @param openDuration         the cool-down before trial calls are allowed on an open circuit (milliseconds)
+     * @param halfOpenCalls        the number of successful trial calls closing the circuit
+     */
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, int failureRateThreshold, long openDuration, int halfOpenCalls) {
+        this(name, windowSize, minimumCalls, failureRateThreshold, openDuration, halfOpenCalls, System::currentTimeMillis);
+    }
+
+    CircuitBreaker(String name, int windowSize, int minimumCalls, int failureRateThreshold, long openDuration, int halfOpenCalls
+            , LongSupplier clock) {
+        this.name = name;
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.min(Math.max(1, minimumCalls), this.window.length);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.clock = clock;
+    }
+
+    /**
+     * Ask the permission to call the endpoint.
+     * A permitted call must then be reported with {@link #onSuccess()}, {@link #onFailure()} or {@link #release()}.
+     *
+     * @return true if the call can be sent, false if it must fail fast.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openDuration) {
+            this.transitionTo(State.HALF_OPEN);
+        }
+
+        boolean permitted;
+        if (state == State.CLOSED) {
+            permitted = true;
+        } else if (state == State.HALF_OPEN && halfOpenPermits > 0) {
+            halfOpenPermits--;
+            permitted = true;
+        } else {
+            permitted = false;
+        }
+
+        if (!permitted) {
+            metrics.increment("http.circuitBreaker.rejected");
+        }
+        return permitted;
+    }
+
+    /**
+     * Report a call which obtained a response from the endpoint.
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            halfOpenSuccesses++;
+            if (halfOpenSuccesses >= halfOpenCalls) {
+                this.transitionTo(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            this.record(false);
+        }
+    }
+
+    /**
+     * Report a call which could not obtain a response from the endpoint.
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            this.transitionTo(State.OPEN);
+        } else if (state == State.CLOSED) {
+            this.record(true);
+            if (windowCount >= minimumCalls && windowFailures * 100 >= failureRateThreshold * windowCount) {
+                this.transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    /**
+     * Report a permitted call which has finally not been sent: its permission is given back.
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN && halfOpenPermits + halfOpenSuccesses < halfOpenCalls) {
+            halfOpenPermits++;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            // the window is full: forget the oldest outcome
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void transitionTo(State newState) {
+        LOGGER.warn("Circuit breaker of {} goes from {} to {}", name, state, newState);
+        this.state = newState;
+        switch (newState) {
+            case OPEN:
+                this.openedAt = clock.getAsLong();
+                metrics.increment("http.circuitBreaker.opened");
+                break;
+            case HALF_OPEN:
+                this.halfOpenPermits = halfOpenCalls;
+                this.halfOpenSuccesses = 0;
+                break;
+            case CLOSED:
+            default:
+                this.windowCount = 0;
+                this.windowIndex = 0;
+                this.windowFailures = 0;
+                metrics.increment("http.circuitBreaker.closed");
+                break;
+        }
+    }
+
+}
@@ -0,0 +1,215 @@
+package com.payline.payment.ppewshop.utils.http;
+
+import com.payline.payment.ppewshop.utils.metrics.Metrics;
+import com.payline.pmapi.logger.LogManager;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.entity.DeflateInputStream;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression of the exchanges with the partner API: gzip of the request bodies, if the endpoint supports it,
+ * and transparent decompression of the gzip or deflate responses.
+ * The bytes which did not go through the network are counted in "http.&lt;operation&gt;.bytesSaved".
+ */
+public class Compression {
+    private static final Logger LOGGER = LogManager.getLogger(Compression.class);
+
+    public static final String ACCEPT_ENCODING = "gzip, deflate";
+    private static final String GZIP = "gzip";
+    private static final String X_GZIP = "x-gzip";
+    private static final String DEFLATE = "deflate";
+
+    private final boolean acceptEncoding;
+    private final boolean compressRequests;
+    private final long requestMinSize;
+
+    private Metrics metrics = Metrics.getInstance();
+
+    /**
+     * @param acceptEncoding   true to ask the partner for compressed responses
+     * @param compressRequests true to compress the request bodies: the endpoint must support it
+     * @param requestMinSize   the size from which a request body is compressed (bytes)
+     */
+    public Compression(boolean acceptEncoding, boolean compressRequests, long requestMinSize) {
+        this.acceptEncoding = acceptEncoding;
+        this.compressRequests = compressRequests;
+        this.requestMinSize = requestMinSize;
+    }
+
+    /**
+     * @return true if the requests must announce that compressed responses are accepted
+     */
+    public boolean isAcceptEncoding() {
+        return acceptEncoding;
+    }
+
+    /**
+     * Compress a request body, if enabled and large enough to be worth it.
+     *
+     * @param body      the request body
+     * @param operation the partner operation called
+     * @return the compressed body, or the original one if it is not compressed
+     */
+    public HttpEntity compress(HttpEntity body, PartnerOperation operation) {
+        if (!compressRequests || body == null || body.getContentEncoding() != null
+                || !body.isRepeatable() || body.getContentLength() < requestMinSize) {
+            return body;
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream((int) body.getContentLength() / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            body.writeTo(gzip);
+        } catch (IOException e) {
+            // not expected for an in-memory body: send it as it is
+            LOGGER.warn("Unable to compress the request body", e);
+            return body;
+        }
+
+        ByteArrayEntity entity = new ByteArrayEntity(compressed.toByteArray());
+        entity.setContentType(body.getContentType());
+        entity.setContentEncoding(GZIP);
+        metrics.add(bytesSaved(operation), body.getContentLength() - entity.getContentLength());
+        return entity;
+    }
+
+    /**
+     * Replace the entity of a compressed response by one which decompresses its content on the fly.
+     *
+     * @param response  the response received
+     * @param operation the partner operation called
+     */
+    public void decompress(HttpResponse response, PartnerOperation operation) {
+        HttpEntity entity = response == null ? null : response.getEntity();
+        Header contentEncoding = entity == null ? null : entity.getContentEncoding();
+        if (contentEncoding == null) {
+            return;
+        }
+
+        String encoding = contentEncoding.getValue().trim().toLowerCase(Locale.ROOT);
+        if (GZIP.equals(encoding) || X_GZIP.equals(encoding) || DEFLATE.equals(encoding)) {
+            response.setEntity(new DecompressingEntity(entity, DEFLATE.equals(encoding), bytesSaved(operation)));
+            response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+            response.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+        }
+    }
+
+    private static String bytesSaved(PartnerOperation operation) {
+        return "http." + operation.getName() + ".bytesSaved";
+    }
+
+    /**
+     * Entity decompressing the wrapped one when read, and counting the bytes saved once it has been read.
+     */
+    private class DecompressingEntity extends HttpEntityWrapper {
+        private final boolean deflate;
+        private final String counter;
+
+        DecompressingEntity(HttpEntity wrappedEntity, boolean deflate, String counter) {
+            super(wrappedEntity);
+            this.deflate = deflate;
+            this.counter = counter;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            InputStream compressed = super.getContent();
+            InputStream decompressed = deflate ? new DeflateInputStream(compressed) : new GZIPInputStream(compressed);
+            return new CountingInputStream(decompressed, wrappedEntity.getContentLength(), counter);
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public Header getContentEncoding() {
+            return null;
+        }
+
+        @Override
+        public void writeTo(OutputStream outStream) throws IOException {
+            try (InputStream content = getContent()) {
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    outStream.write(buffer, 0, read);
+                }
+            }
+        }
+    }
+
+    /**
+     * Count the decompressed bytes, and record the difference with the compressed size once the end is reached.
+     */
+    private class CountingInputStream extends FilterInputStream {
+        private final long compressedLength;
+        private final String counter;
+        private long count;
+        private boolean recorded;
+
+        CountingInputStream(InputStream in, long compressedLength, String counter) {
+            super(in);
+            this.compressedLength = compressedLength;
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == -1) {
+                this.record();
+            } else {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read == -1) {
+                this.record();
+            } else {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!recorded) {
+                // a parser can stop before the end: read what remains to know the full size
+                byte[] buffer = new byte[512];
+                while (this.read(buffer, 0, buffer.length) != -1) {
+                    // counted by read
+                }
+            }
+            super.close();
+        }
+
+        private void record() {
+            if (!recorded) {
+                recorded = true;
+                if (compressedLength >= 0) {
+                    metrics.add(counter, count - compressedLength);
+                }
+            }
+        }
+    }
+
+}
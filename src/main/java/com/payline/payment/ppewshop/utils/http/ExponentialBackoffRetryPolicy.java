@@ -0,0 +1,42 @@
+package com.payline.payment.ppewshop.utils.http;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry up to a maximum number of attempts, waiting a random delay ("full jitter") below an exponentially growing cap.
+ * A non-idempotent operation is only retried if its request was not sent, to avoid creating the same dossier twice.
+ */
+public class ExponentialBackoffRetryPolicy implements RetryPolicy {
+
+    public static final long NO_RETRY = -1;
+
+    private final int maxAttempts;
+    private final long initialDelay;
+    private final long maxDelay;
+
+    /**
+     * @param maxAttempts  the total number of attempts, the first one included
+     * @param initialDelay the cap of the delay before the first retry, doubled for each next one (milliseconds)
+     * @param maxDelay     the maximum cap of the delay (milliseconds)
+     */
+    public ExponentialBackoffRetryPolicy(int maxAttempts, long initialDelay, long maxDelay) {
+        this.maxAttempts = maxAttempts;
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    @Override
+    public long retryDelay(PartnerOperation operation, int attempt, Exception failure, boolean requestSent) {
+        if (attempt >= maxAttempts || (requestSent && !operation.isIdempotent())) {
+            return NO_RETRY;
+        }
+
+        // cap = initialDelay * 2^(attempt - 1), without overflowing on a large number of attempts
+        long cap = maxDelay;
+        if (attempt - 1 < Long.numberOfLeadingZeros(initialDelay) - 1) {
+            cap = Math.min(maxDelay, initialDelay << (attempt - 1));
+        }
+        return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+}
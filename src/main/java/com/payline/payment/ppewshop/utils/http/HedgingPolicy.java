@@ -0,0 +1,92 @@
+package com.payline.payment.ppewshop.utils.http;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decide when a second identical request must be sent because the first one is slow ("hedging"),
+ * while keeping the extra load on the partner under a budget.
+ * <p>
+ * Every request earns {@code budget} credits, a hedge costs {@value #CREDITS_PER_HEDGE}: at most {@code budget}% of
+ * the requests are hedged, with a small burst allowed after a quiet period.
+ */
+public class HedgingPolicy {
+
+    public static final long NO_HEDGE = -1;
+
+    private static final long CREDITS_PER_HEDGE = 100;
+    private static final long MAX_CREDITS = 10 * CREDITS_PER_HEDGE;
+
+    // the observed latencies used to compute the percentile: the last SAMPLES ones, once MIN_SAMPLES are known
+    private static final int SAMPLES = 128;
+    private static final int MIN_SAMPLES = 20;
+    private static final int PERCENTILE = 95;
+
+    private final long delay;
+    private final int budget;
+
+    private final AtomicLong credits = new AtomicLong();
+
+    private final long[] latencies = new long[SAMPLES];
+    private long recorded;
+    private volatile long observedPercentile = NO_HEDGE;
+
+    /**
+     * @param delay  the time without response after which the request is hedged, 0 or less to use the observed
+     *               95th percentile of the latency (milliseconds)
+     * @param budget the maximum share of the requests which can be hedged (percent)
+     */
+    public HedgingPolicy(long delay, int budget) {
+        this.delay = delay;
+        this.budget = budget;
+    }
+
+    /**
+     * Register a new request, which increases the hedging budget.
+     */
+    public void onRequest() {
+        credits.accumulateAndGet(budget, (current, earned) -> Math.min(MAX_CREDITS, current + earned));
+    }
+
+    /**
+     * Consume the budget of one hedge.
+     *
+     * @return true if the request can be hedged, false if the budget is exhausted.
+     */
+    public boolean tryAcquire() {
+        long current;
+        do {
+            current = credits.get();
+            if (current < CREDITS_PER_HEDGE) {
+                return false;
+            }
+        } while (!credits.compareAndSet(current, current - CREDITS_PER_HEDGE));
+        return true;
+    }
+
+    /**
+     * @return the time without response after which a request must be hedged (milliseconds),
+     * or {@link #NO_HEDGE} if it is still unknown
+     */
+    public long hedgeDelay() {
+        return delay > 0 ? delay : observedPercentile;
+    }
+
+    /**
+     * Record the time a request took to obtain its response.
+     *
+     * @param latency the latency (milliseconds)
+     */
+    public synchronized void recordLatency(long latency) {
+        latencies[(int) (recorded % SAMPLES)] = latency;
+        recorded++;
+
+        // sorting the samples is cheap, but not needed on every request
+        if (recorded >= MIN_SAMPLES && (observedPercentile == NO_HEDGE || recorded % 16 == 0)) {
+            long[] sorted = Arrays.copyOf(latencies, (int) Math.min(recorded, SAMPLES));
+            Arrays.sort(sorted);
+            observedPercentile = sorted[(sorted.length * PERCENTILE + 99) / 100 - 1];
+        }
+    }
+
+}
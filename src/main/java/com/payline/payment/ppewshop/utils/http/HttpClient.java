@@ -3,23 +3,63 @@ package com.payline.payment.ppewshop.utils.http;
 
 import com.payline.payment.ppewshop.exception.InvalidDataException;
 import com.payline.payment.ppewshop.exception.PluginException;
+import com.payline.payment.ppewshop.utils.PluginUtils;
+import com.payline.payment.ppewshop.utils.metrics.Metrics;
 import com.payline.payment.ppewshop.utils.properties.ConfigProperties;
 import com.payline.pmapi.bean.common.FailureCause;
 import com.payline.pmapi.logger.LogManager;
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
 import org.apache.http.client.config.RequestConfig;
-import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.conn.ManagedNHttpClientConnectionFactory;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.ConnectingIOReactor;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.ssl.SSLContexts;
 import org.apache.logging.log4j.Logger;
 
-import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 
 public class HttpClient {
@@ -29,11 +69,53 @@ public class HttpClient {
     private static final String SERVICE_URL_ERROR = "Service URL is invalid";
 
     /**
-     * The number of time the client must retry to send the request if it doesn't obtain a response.
+     * Decides whether, and when, the client must retry to send the request if it doesn't obtain a response.
      */
-    private int retries;
+    private RetryPolicy retryPolicy;
 
-    private org.apache.http.client.HttpClient client;
+    /**
+     * Delays the retries without holding any thread, neither the caller's nor an I/O dispatcher,
+     * and periodically evicts the stale connections from the pool.
+     */
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ppewshop-http-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Reads and decodes the responses out of the I/O dispatchers: a large or slow to decode response must not delay
+     * the other connections carried by the same dispatcher. The callers' own processing of the response runs there
+     * too.
+     */
+    private final Executor decoder;
+
+    private Metrics metrics = Metrics.getInstance();
+
+    /**
+     * Compresses the request bodies and decompresses the responses, if enabled.
+     */
+    private Compression compression;
+
+    /**
+     * The pool of connections used by the client, kept to expose its statistics.
+     */
+    private PoolingNHttpClientConnectionManager connectionManager;
+
+    /**
+     * The time after which an unused pooled connection is closed (seconds).
+     */
+    private int maxIdleTime;
+
+    /**
+     * Non-blocking client: a few I/O dispatcher threads carry every call to the partner API.
+     */
+    private CloseableHttpAsyncClient client;
+
+    /**
+     * The TLS context of the calls to the partner API.
+     */
+    private final SSLContext sslContext;
 
     // --- Singleton Holder pattern + initialization BEGIN
 
@@ -44,6 +126,20 @@ public class HttpClient {
         int connectionRequestTimeout;
         int connectTimeout;
         int socketTimeout;
+        int retries;
+        int retryInitialDelay;
+        int retryMaxDelay;
+        int ioThreads;
+        int decodeThreads;
+        int maxTotal;
+        int maxPerRoute;
+        int timeToLive;
+        int keepAlive;
+        int maxIdleTime;
+        int evictionPeriod;
+        boolean acceptEncoding;
+        boolean compressRequests;
+        int compressionMinSize;
         try {
             // request config timeouts (in seconds)
             ConfigProperties config = ConfigProperties.getInstance();
@@ -51,25 +147,80 @@ public class HttpClient {
             connectTimeout = Integer.parseInt(config.get("http.connectTimeout"));
             socketTimeout = Integer.parseInt(config.get("http.socketTimeout"));
 
-            // retries
-            this.retries = Integer.parseInt(config.get("http.retries"));
+            // retries (delays in milliseconds)
+            retries = Integer.parseInt(config.get("http.retries"));
+            retryInitialDelay = Integer.parseInt(config.get("http.retry.initialDelay"));
+            retryMaxDelay = Integer.parseInt(config.get("http.retry.maxDelay"));
+
+            // I/O reactor and connection pool (timeToLive, keepAlive, maxIdleTime and evictionPeriod in seconds)
+            ioThreads = Integer.parseInt(config.get("http.ioThreads"));
+            decodeThreads = Integer.parseInt(config.get("http.decodeThreads"));
+            maxTotal = Integer.parseInt(config.get("http.pool.maxTotal"));
+            maxPerRoute = Integer.parseInt(config.get("http.pool.maxPerRoute"));
+            timeToLive = Integer.parseInt(config.get("http.pool.timeToLive"));
+            keepAlive = Integer.parseInt(config.get("http.pool.keepAlive"));
+            maxIdleTime = Integer.parseInt(config.get("http.pool.maxIdleTime"));
+            evictionPeriod = Integer.parseInt(config.get("http.pool.evictionPeriod"));
+
+            // compression (minSize in bytes)
+            acceptEncoding = Boolean.parseBoolean(config.get("http.compression.acceptEncoding"));
+            compressRequests = Boolean.parseBoolean(config.get("http.compression.requests"));
+            compressionMinSize = Integer.parseInt(config.get("http.compression.minSize"));
         } catch (NumberFormatException e) {
             throw new PluginException("plugin error: http.* properties must be integers", e);
         }
 
+        this.retryPolicy = new ExponentialBackoffRetryPolicy(retries, retryInitialDelay, retryMaxDelay);
+        // at most one response per pooled connection waits to be decoded
+        this.decoder = decoder(decodeThreads, maxTotal);
+        this.compression = new Compression(acceptEncoding, compressRequests, compressionMinSize);
+
         RequestConfig requestConfig = RequestConfig.custom()
                 .setConnectionRequestTimeout(connectionRequestTimeout * 1000)
                 .setConnectTimeout(connectTimeout * 1000)
                 .setSocketTimeout(socketTimeout * 1000)
                 .build();
 
-        // instantiate Apache HTTP client
-        this.client = HttpClientBuilder.create()
+        ConnectingIOReactor ioReactor;
+        try {
+            ioReactor = new DefaultConnectingIOReactor(IOReactorConfig.custom()
+                    .setIoThreadCount(ioThreads)
+                    .setConnectTimeout(connectTimeout * 1000)
+                    .setSoTimeout(socketTimeout * 1000)
+                    .build());
+        } catch (IOReactorException e) {
+            throw new PluginException("plugin error: unable to start the HTTP I/O reactor", e);
+        }
+
+        // the SSL strategy must be registered in the connection manager, which ignores the one of the builder
+        this.sslContext = SSLContexts.createSystemDefault();
+        Registry<SchemeIOSessionStrategy> sessionStrategyRegistry = RegistryBuilder.<SchemeIOSessionStrategy>create()
+                .register("http", NoopIOSessionStrategy.INSTANCE)
+                .register("https", new SSLIOSessionStrategy(this.sslContext, SSLIOSessionStrategy.getDefaultHostnameVerifier()))
+                .build();
+
+        this.connectionManager = new PoolingNHttpClientConnectionManager(ioReactor
+                , ManagedNHttpClientConnectionFactory.INSTANCE
+                , sessionStrategyRegistry
+                , DefaultSchemePortResolver.INSTANCE
+                , SystemDefaultDnsResolver.INSTANCE
+                , timeToLive
+                , TimeUnit.SECONDS);
+        this.connectionManager.setMaxTotal(maxTotal);
+        this.connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        this.maxIdleTime = maxIdleTime;
+
+        // close the connections the server has (or is about to have) dropped, before a request fails on them
+        this.scheduler.scheduleWithFixedDelay(this::evictConnections, evictionPeriod, evictionPeriod, TimeUnit.SECONDS);
+
+        // instantiate Apache HTTP async client
+        this.client = HttpAsyncClientBuilder.create()
                 .useSystemProperties()
                 .setDefaultRequestConfig(requestConfig)
-                .setSSLSocketFactory(new SSLConnectionSocketFactory(HttpsURLConnection.getDefaultSSLSocketFactory(), SSLConnectionSocketFactory.getDefaultHostnameVerifier()))
+                .setConnectionManager(this.connectionManager)
+                .setKeepAliveStrategy(new KeepAliveStrategy(keepAlive * 1000L))
                 .build();
-
+        this.client.start();
     }
 
     /**
@@ -86,44 +237,185 @@ public class HttpClient {
     // --- Singleton Holder pattern + initialization END
 
     /**
-     * Send the request, with a retry system in case the client does not obtain a proper response from the server.
+     * The decoding threads are created on demand, and stop after a minute without any response to decode.
+     */
+    private static ThreadPoolExecutor decoder(int threads, int queueSize) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS
+                , new ArrayBlockingQueue<>(Math.max(1, queueSize)), r -> {
+            Thread thread = new Thread(r, "ppewshop-http-decoder-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Get a snapshot of the connection pool usage, all routes included.
+     *
+     * @return the number of leased, pending and available connections, and the pool maximum size.
+     */
+    public PoolStats getPoolStats() {
+        return this.connectionManager.getTotalStats();
+    }
+
+    /**
+     * Initialize the TLS machinery (providers, cipher suites, secure random) by producing the first message of a
+     * handshake, without any network exchange: the first call to the partner API does not pay for it.
+     *
+     * @throws SSLException if the TLS engine cannot be initialized
+     */
+    public void warmUpSsl() throws SSLException {
+        SSLEngine engine = this.sslContext.createSSLEngine();
+        engine.setUseClientMode(true);
+        engine.beginHandshake();
+        ByteBuffer clientHello = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+        engine.wrap(ByteBuffer.allocate(0), clientHello);
+        engine.closeOutbound();
+    }
+
+    /**
+     * Close the pooled connections whose keep-alive has expired, and those unused for too long.
+     */
+    void evictConnections() {
+        try {
+            this.connectionManager.closeExpiredConnections();
+            this.connectionManager.closeIdleConnections(maxIdleTime, TimeUnit.SECONDS);
+        } catch (RuntimeException e) {
+            // never let an error cancel the next evictions
+            LOGGER.error("Unable to evict the stale connections", e);
+        }
+    }
+
+    /**
+     * Replace the policy deciding whether, and when, a failed call is sent again.
+     *
+     * @param retryPolicy the new retry policy
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Send the request without blocking the calling thread, with a retry system in case the client does not obtain
+     * a proper response from the server.
      *
      * @param httpRequest The request to send.
-     * @return The response converted as a {@link StringResponse}.
-     * @throws PluginException If an error repeatedly occurs and no proper response is obtained.
+     * @param operation   The partner operation, which tells if the request can safely be sent again.
+     * @return A future completed with the response converted as a {@link StringResponse},
+     * or completed exceptionally with a {@link PluginException} if an error repeatedly occurs and no proper response is obtained.
+     */
+    CompletableFuture<StringResponse> executeAsync(HttpRequestBase httpRequest, PartnerOperation operation) {
+        // track the writing of the body, to know if a failed request reached the partner
+        SendTrackingEntity trackingEntity = null;
+        if (httpRequest instanceof HttpEntityEnclosingRequestBase && ((HttpEntityEnclosingRequestBase) httpRequest).getEntity() != null) {
+            trackingEntity = new SendTrackingEntity(((HttpEntityEnclosingRequestBase) httpRequest).getEntity());
+            ((HttpEntityEnclosingRequestBase) httpRequest).setEntity(trackingEntity);
+        }
+
+        CompletableFuture<StringResponse> result = new CompletableFuture<>();
+        this.attempt(httpRequest, operation, trackingEntity, 1, result);
+        return result;
+    }
+
+    /**
+     * Send the request once and, on failure, let the retry policy decide of the next attempt.
      */
-    StringResponse execute(HttpRequestBase httpRequest) {
-        StringResponse strResponse = null;
-        int attempts = 1;
+    private void attempt(HttpRequestBase httpRequest, PartnerOperation operation, SendTrackingEntity trackingEntity
+            , int attempt, CompletableFuture<StringResponse> result) {
+        LOGGER.info("Start call to partner API [{} {}] (attempt {})", httpRequest.getMethod(), httpRequest.getURI(), attempt);
+        metrics.increment("http." + operation.getName() + ".attempt");
 
-        while (strResponse == null && attempts <= this.retries) {
-            LOGGER.info("Start call to partner API [{} {}] (attempt {})", httpRequest.getMethod(), httpRequest.getURI(), attempts);
-            try (CloseableHttpResponse httpResponse = (CloseableHttpResponse) this.client.execute(httpRequest)) {
-                strResponse = StringResponse.fromHttpResponse(httpResponse);
-            } catch (IOException e) {
+        Future<HttpResponse> exchange = this.client.execute(httpRequest, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse httpResponse) {
+                try {
+                    decoder.execute(() -> onResponse(httpRequest, operation, trackingEntity, attempt, httpResponse, result));
+                } catch (RejectedExecutionException e) {
+                    // cannot happen while the queue holds a response per pooled connection: decoded here rather than lost
+                    LOGGER.warn("Response decoding queue full, decoding on the I/O dispatcher");
+                    onResponse(httpRequest, operation, trackingEntity, attempt, httpResponse, result);
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
                 LOGGER.error("An error occurred during the HTTP call :", e);
-                strResponse = null;
-            } finally {
-                attempts++;
+                retryOrFail(httpRequest, operation, trackingEntity, attempt, e, result);
+            }
+
+            @Override
+            public void cancelled() {
+                result.completeExceptionally(new PluginException("The call to the partner API has been cancelled", FailureCause.COMMUNICATION_ERROR));
             }
+        });
+
+        // a cancelled result aborts the exchange in progress, which gives its connection back to the pool
+        result.whenComplete((response, failure) -> {
+            if (result.isCancelled() && exchange != null) {
+                exchange.cancel(true);
+            }
+        });
+    }
+
+    private void onResponse(HttpRequestBase httpRequest, PartnerOperation operation, SendTrackingEntity trackingEntity
+            , int attempt, HttpResponse httpResponse, CompletableFuture<StringResponse> result) {
+        try {
+            compression.decompress(httpResponse, operation);
+            StringResponse strResponse = StringResponse.fromHttpResponse(httpResponse);
+            if (strResponse == null) {
+                retryOrFail(httpRequest, operation, trackingEntity, attempt, null, result);
+            } else {
+                LOGGER.info("Response obtained from partner API [{} {}]", strResponse.getStatusCode(), strResponse.getStatusMessage());
+                result.complete(strResponse);
+            }
+        } catch (RuntimeException e) {
+            // off the client's callback: nobody else would complete the result
+            result.completeExceptionally(e);
         }
+    }
+
+    private void retryOrFail(HttpRequestBase httpRequest, PartnerOperation operation, SendTrackingEntity trackingEntity
+            , int attempt, Exception failure, CompletableFuture<StringResponse> result) {
+        boolean requestSent = trackingEntity == null || trackingEntity.isSent();
+        long delay = retryPolicy.retryDelay(operation, attempt, failure, requestSent);
 
-        if (strResponse == null) {
-            throw new PluginException("Failed to contact the partner API", FailureCause.COMMUNICATION_ERROR);
+        if (delay < 0) {
+            metrics.increment("http." + operation.getName() + ".failure");
+            result.completeExceptionally(new PluginException("Failed to contact the partner API", FailureCause.COMMUNICATION_ERROR));
+        } else {
+            LOGGER.info("Retrying call to partner API [{} {}] in {} ms", httpRequest.getMethod(), httpRequest.getURI(), delay);
+            metrics.increment("http." + operation.getName() + ".retry");
+            scheduler.schedule(() -> this.attempt(httpRequest, operation, trackingEntity, attempt + 1, result)
+                    , delay, TimeUnit.MILLISECONDS);
         }
-        LOGGER.info("Response obtained from partner API [{} {}]", strResponse.getStatusCode(), strResponse.getStatusMessage());
-        return strResponse;
     }
 
     /**
-     * Manage Post API call
+     * Send the request, with a retry system in case the client does not obtain a proper response from the server.
+     * Blocking wrapper around {@link #executeAsync(HttpRequestBase, PartnerOperation)}.
+     *
+     * @param httpRequest The request to send.
+     * @param operation   The partner operation, which tells if the request can safely be sent again.
+     * @return The response converted as a {@link StringResponse}.
+     * @throws PluginException If an error repeatedly occurs and no proper response is obtained.
+     */
+    StringResponse execute(HttpRequestBase httpRequest, PartnerOperation operation) {
+        return PluginUtils.join(this.executeAsync(httpRequest, operation));
+    }
+
+    /**
+     * Manage asynchronous Post API call
      *
      * @param url     the url to call
      * @param headers header(s) of the request
      * @param body    the body of the request
-     * @return
+     * @param operation the partner operation called
+     * @return a future completed with the response
+     * @throws InvalidDataException If the url is invalid (the request is not sent)
      */
-    public StringResponse post(String url, Header[] headers, StringEntity body) {
+    public CompletableFuture<StringResponse> postAsync(String url, Header[] headers, HttpEntity body, PartnerOperation operation) {
         URI uri;
         try {
             // Add the createOrderId to the url
@@ -134,10 +426,124 @@ public class HttpClient {
 
         final HttpPost httpPost = new HttpPost(uri);
         httpPost.setHeaders(headers);
-        httpPost.setEntity(body);
+        if (compression.isAcceptEncoding()) {
+            httpPost.addHeader(HttpHeaders.ACCEPT_ENCODING, Compression.ACCEPT_ENCODING);
+        }
+        httpPost.setEntity(compression.compress(body, operation));
 
         // Execute request
-        return this.execute(httpPost);
+        return this.executeAsync(httpPost, operation);
+    }
+
+    /**
+     * Send a second identical request if the first one is slow to answer ("hedging"): the first response obtained is
+     * used, and the other request is cancelled. Only an idempotent operation must be hedged.
+     * <p>
+     * The latency of the first request is recorded by the policy whichever request wins: if it is cancelled, the time
+     * it had already waited is recorded.
+     *
+     * @param request   sends the request, each time it is called
+     * @param operation the partner operation called
+     * @param hedging   the policy deciding when the request is hedged
+     * @return a future completed with the first response, or with an error if no request obtains any
+     */
+    public <T> CompletableFuture<T> hedge(Supplier<CompletableFuture<T>> request, PartnerOperation operation
+            , HedgingPolicy hedging) {
+        hedging.onRequest();
+        long start = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // the number of requests sent which can still complete the result
+        AtomicInteger outstanding = new AtomicInteger(1);
+        AtomicReference<CompletableFuture<T>> hedge = new AtomicReference<>();
+
+        BiConsumer<T, Throwable> onComplete = (response, failure) -> {
+            if (failure == null) {
+                result.complete(response);
+            } else if (outstanding.decrementAndGet() == 0) {
+                result.completeExceptionally(failure instanceof CompletionException ? failure.getCause() : failure);
+            }
+        };
+
+        CompletableFuture<T> primary = request.get();
+        primary.whenComplete((response, failure) -> {
+            if (failure == null || primary.isCancelled()) {
+                hedging.recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        });
+        primary.whenComplete(onComplete);
+        // the loser, or both requests if the caller cancels the result, must not hold a connection anymore
+        result.whenComplete((response, failure) -> {
+            primary.cancel(false);
+            CompletableFuture<T> second = hedge.get();
+            if (second != null) {
+                second.cancel(false);
+            }
+        });
+
+        long delay = hedging.hedgeDelay();
+        if (delay >= 0) {
+            scheduler.schedule(() -> {
+                if (!result.isDone() && hedging.tryAcquire()) {
+                    LOGGER.info("No response from partner API after {} ms, hedging the request", delay);
+                    metrics.increment("http." + operation.getName() + ".hedged");
+                    outstanding.incrementAndGet();
+                    CompletableFuture<T> second;
+                    try {
+                        second = request.get();
+                    } catch (RuntimeException e) {
+                        onComplete.accept(null, e);
+                        return;
+                    }
+                    hedge.set(second);
+                    second.whenComplete(onComplete);
+                    if (result.isDone()) {
+                        // completed while the second request was being sent
+                        second.cancel(false);
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        return result;
+    }
+
+    /**
+     * Manage Post API call
+     *
+     * @param url     the url to call
+     * @param headers header(s) of the request
+     * @param body    the body of the request
+     * @param operation the partner operation called
+     * @return
+     */
+    public StringResponse post(String url, Header[] headers, HttpEntity body, PartnerOperation operation) {
+        return PluginUtils.join(this.postAsync(url, headers, body, operation));
+    }
+
+    /**
+     * Entity which records when the client starts writing it on the connection, i.e. when the request reaches the partner.
+     */
+    private static class SendTrackingEntity extends HttpEntityWrapper {
+        private volatile boolean sent;
+
+        SendTrackingEntity(HttpEntity wrappedEntity) {
+            super(wrappedEntity);
+        }
+
+        boolean isSent() {
+            return sent;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            this.sent = true;
+            return super.getContent();
+        }
+
+        @Override
+        public void writeTo(OutputStream outStream) throws IOException {
+            this.sent = true;
+            super.writeTo(outStream);
+        }
     }
 
 }
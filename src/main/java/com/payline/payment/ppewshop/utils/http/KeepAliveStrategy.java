@@ -0,0 +1,29 @@
+package com.payline.payment.ppewshop.utils.http;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Keep a connection alive as long as the server announces it in the {@code Keep-Alive} response header,
+ * and for a default duration if it does not, instead of indefinitely.
+ */
+public class KeepAliveStrategy implements ConnectionKeepAliveStrategy {
+
+    private final long defaultKeepAlive;
+
+    /**
+     * @param defaultKeepAlive the keep-alive duration used when the server does not announce any (milliseconds)
+     */
+    public KeepAliveStrategy(long defaultKeepAlive) {
+        this.defaultKeepAlive = defaultKeepAlive;
+    }
+
+    @Override
+    public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+        long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+        return keepAlive > 0 ? keepAlive : defaultKeepAlive;
+    }
+
+}
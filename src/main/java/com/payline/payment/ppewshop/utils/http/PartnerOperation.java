@@ -0,0 +1,34 @@
+package com.payline.payment.ppewshop.utils.http;
+
+/**
+ * The operations of the partner API, with what the client needs to know to handle them safely.
+ */
+public enum PartnerOperation {
+    /**
+     * Read-only: can be replayed at will.
+     */
+    CHECK_STATUS("checkStatus", true),
+    /**
+     * Creates a dossier on the partner side: must not be replayed once the request has been sent.
+     */
+    INIT_DOSSIER("initDossier", false);
+
+    private final String name;
+    private final boolean idempotent;
+
+    PartnerOperation(String name, boolean idempotent) {
+        this.name = name;
+        this.idempotent = idempotent;
+    }
+
+    /**
+     * @return the operation name, as used in the partner API and in the metrics names
+     */
+    public String getName() {
+        return name;
+    }
+
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+}
@@ -0,0 +1,17 @@
+package com.payline.payment.ppewshop.utils.http;
+
+/**
+ * Decide whether a failed call to the partner API must be sent again, and when.
+ */
+public interface RetryPolicy {
+
+    /**
+     * @param operation   the partner operation which failed
+     * @param attempt     the number of the attempt which failed (starting at 1)
+     * @param failure     the error which occurred, null if the response could not be read
+     * @param requestSent true if the request has (at least partly) been written on the connection before the failure
+     * @return the delay in milliseconds before the next attempt, or a negative value if the call must not be retried
+     */
+    long retryDelay(PartnerOperation operation, int attempt, Exception failure, boolean requestSent);
+
+}
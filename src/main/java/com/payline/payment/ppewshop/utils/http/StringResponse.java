@@ -1,10 +1,20 @@
 package com.payline.payment.ppewshop.utils.http;
 
+import com.payline.payment.ppewshop.exception.PluginException;
+import com.payline.pmapi.bean.common.FailureCause;
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.http.ParseException;
+import org.apache.http.entity.ContentType;
 import org.apache.http.util.EntityUtils;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -12,18 +22,82 @@ import java.util.Map;
 
 /**
  * Simple POJO supporting the core elements of an HTTP response, in a more readable format (especially the content).
+ * The content of the response entity, already buffered in memory by the asynchronous client, is read once as bytes:
+ * it can then be parsed as a stream without decoding it into a String, and still be read as a String (for logging).
  */
 public class StringResponse {
 
     private String content;
+    private byte[] body;
+    private Charset charset;
+    private HttpEntity entity;
     private Map<String, String> headers = new HashMap<>();
     private int statusCode;
     private String statusMessage;
 
     public String getContent() {
+        if (content == null) {
+            try {
+                this.readEntity();
+            } catch (IOException e) {
+                return null;
+            }
+            if (body != null) {
+                content = new String(body, charset);
+            }
+        }
         return content;
     }
 
+    /**
+     * Get the content as a stream, to hand it directly to a parser without building an intermediate String.
+     * The content stays readable afterwards, with this method or with {@link #getContent()}.
+     *
+     * @return the content stream, or null if the response has no content
+     * @throws PluginException if the content cannot be read
+     */
+    public InputStream getContentStream() {
+        try {
+            this.readEntity();
+        } catch (IOException e) {
+            throw new PluginException("Unable to read the partner response", FailureCause.COMMUNICATION_ERROR, e);
+        }
+        if (body != null) {
+            return new ByteArrayInputStream(body);
+        }
+        return content == null ? null : new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Read the entity content, once.
+     */
+    private void readEntity() throws IOException {
+        if (entity == null) {
+            return;
+        }
+        try {
+            charset = charset(entity);
+            body = EntityUtils.toByteArray(entity);
+        } finally {
+            entity = null;
+        }
+    }
+
+    /**
+     * @return the charset declared by the entity, or the HTTP default one, as {@link EntityUtils#toString(HttpEntity)}
+     */
+    private static Charset charset(HttpEntity entity) {
+        try {
+            ContentType contentType = ContentType.get(entity);
+            if (contentType != null && contentType.getCharset() != null) {
+                return contentType.getCharset();
+            }
+        } catch (ParseException | UnsupportedCharsetException e) {
+            // invalid declaration: default charset
+        }
+        return StandardCharsets.ISO_8859_1;
+    }
+
     public String getHeader(String name) {
         if (headers != null && name != null) {
             return headers.get(name.toLowerCase());
@@ -61,11 +135,7 @@ public class StringResponse {
             instance.statusCode = httpResponse.getStatusLine().getStatusCode();
             instance.statusMessage = httpResponse.getStatusLine().getReasonPhrase();
 
-            try {
-                instance.content = EntityUtils.toString(httpResponse.getEntity());
-            } catch (IOException e) {
-                instance.content = null;
-            }
+            instance.entity = httpResponse.getEntity();
 
             Header[] rawHeaders = httpResponse.getAllHeaders();
             for (Header header: rawHeaders){
@@ -85,7 +155,7 @@ public class StringResponse {
         this.headers.forEach((key, value) -> strHeaders.add(key + ": " + value));
         str += String.join(ln, strHeaders);
 
-        if (this.content != null) {
+        if (this.getContent() != null) {
             str += ln + this.content;
         }
 
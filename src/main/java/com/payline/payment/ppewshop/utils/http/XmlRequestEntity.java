@@ -0,0 +1,60 @@
+package com.payline.payment.ppewshop.utils.http;
+
+import com.payline.payment.ppewshop.bean.request.PpewShopRequest;
+import com.payline.payment.ppewshop.utils.xml.XmlSerializer;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Request body serialized straight into bytes: no intermediate String, and no second encoding pass as with a
+ * {@link org.apache.http.entity.StringEntity}.
+ * The serialization goes through a reusable per-thread buffer, so the body only costs its own, exactly sized, array.
+ * The array gives the content length, and lets the client send the body again on retry.
+ */
+public class XmlRequestEntity extends AbstractHttpEntity {
+
+    private static final ContentType CONTENT_TYPE = ContentType.create("application/xml", "UTF-8");
+
+    private final byte[] content;
+
+    /**
+     * @param request the request to send
+     * @throws com.payline.payment.ppewshop.exception.InvalidDataException if the request cannot be serialized
+     */
+    public XmlRequestEntity(PpewShopRequest request) {
+        setContentType(CONTENT_TYPE.toString());
+        this.content = XmlSerializer.getInstance().toBytes(request);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return content.length;
+    }
+
+    @Override
+    public InputStream getContent() {
+        return new ByteArrayInputStream(content);
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        outStream.write(content);
+        outStream.flush();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.payline.payment.ppewshop.utils.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory counters of the plugin activity (calls to the partner API, retries, rejections...).
+ * Counters are created on first use, identified by a dotted name like "http.checkStatus.attempt".
+ */
+public class Metrics {
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    // --- Singleton Holder pattern + initialization BEGIN
+    Metrics() {
+    }
+
+    private static class Holder {
+        private static final Metrics instance = new Metrics();
+    }
+
+    public static Metrics getInstance() {
+        return Holder.instance;
+    }
+    // --- Singleton Holder pattern + initialization END
+
+    /**
+     * Increment a counter by one.
+     *
+     * @param name the counter name
+     */
+    public void increment(String name) {
+        this.add(name, 1);
+    }
+
+    /**
+     * Increment a counter by the given amount.
+     *
+     * @param name  the counter name
+     * @param delta the amount to add
+     */
+    public void add(String name, long delta) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * Get the current value of a counter.
+     *
+     * @param name the counter name
+     * @return the counter value, 0 if it has never been incremented
+     */
+    public long get(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * @return the current value of every counter, sorted by name
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        return snapshot;
+    }
+
+}
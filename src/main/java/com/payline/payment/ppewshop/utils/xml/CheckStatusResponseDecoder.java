@@ -0,0 +1,104 @@
+package com.payline.payment.ppewshop.utils.xml;
+
+import com.payline.payment.ppewshop.bean.common.CheckStatusOut;
+import com.payline.payment.ppewshop.bean.response.CheckStatusResponse;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+
+/**
+ * Decode a checkStatus response with a StAX pull parser, reading only the fields used by the plugin:
+ * transactionId, statusCode, creditAuthorizationNumber and redirectionUrl.
+ * The other elements (the merchant order reference in particular) are skipped, and the parsing stops as soon as
+ * the four fields are known, or at the end of the checkStatusOut element.
+ * <p>
+ * As with Jackson, the namespaces are ignored and a missing field is null.
+ */
+public class CheckStatusResponseDecoder {
+
+    private static final String CHECK_STATUS_OUT = "checkStatusOut";
+    private static final String TRANSACTION_ID = "transactionId";
+    private static final String STATUS_CODE = "statusCode";
+    private static final String CREDIT_AUTHORIZATION_NUMBER = "creditAuthorizationNumber";
+    private static final String REDIRECTION_URL = "redirectionUrl";
+    private static final int FIELDS = 4;
+
+    private CheckStatusResponseDecoder() {
+    }
+
+    /**
+     * @param xml the response stream, left open
+     * @return the decoded response
+     * @throws XMLStreamException       if the document is not well-formed
+     * @throws IllegalArgumentException if the status code is unknown
+     */
+    public static CheckStatusResponse decode(InputStream xml) throws XMLStreamException {
+        XMLStreamReader reader = StaxReaders.create(xml);
+        try {
+            return decode(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * @param reader the reader, positioned at the start of the document or of its root element
+     * @return the decoded response
+     * @throws XMLStreamException       if the document is not well-formed
+     * @throws IllegalArgumentException if the status code is unknown
+     */
+    public static CheckStatusResponse decode(XMLStreamReader reader) throws XMLStreamException {
+        CheckStatusOut.Builder builder = CheckStatusOut.Builder.aCheckStatusOut();
+        int found = 0;
+        int depth = reader.getEventType() == XMLStreamConstants.START_ELEMENT ? 1 : 0;
+        // the depth of the checkStatusOut element, 0 until it is reached
+        int outDepth = 0;
+
+        while (found < FIELDS && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                if (depth == outDepth && outDepth > 0) {
+                    // end of checkStatusOut
+                    break;
+                }
+                depth--;
+            } else if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                String name = reader.getLocalName();
+                if (outDepth == 0) {
+                    if (depth == 2 && CHECK_STATUS_OUT.equals(name)) {
+                        outDepth = depth;
+                    }
+                } else if (depth == outDepth + 1) {
+                    // getElementText() reads up to the end of the element
+                    if (TRANSACTION_ID.equals(name)) {
+                        builder.withTransactionId(reader.getElementText());
+                        found++;
+                        depth--;
+                    } else if (STATUS_CODE.equals(name)) {
+                        builder.withStatusCode(statusCode(reader.getElementText()));
+                        found++;
+                        depth--;
+                    } else if (CREDIT_AUTHORIZATION_NUMBER.equals(name)) {
+                        builder.withCreditAuthorizationNumber(reader.getElementText());
+                        found++;
+                        depth--;
+                    } else if (REDIRECTION_URL.equals(name)) {
+                        builder.withRedirectionUrl(reader.getElementText());
+                        found++;
+                        depth--;
+                    }
+                }
+            }
+        }
+
+        return new CheckStatusResponse(builder.build());
+    }
+
+    private static CheckStatusOut.StatusCode statusCode(String value) {
+        return value.isEmpty() ? null : CheckStatusOut.StatusCode.valueOf(value);
+    }
+
+}
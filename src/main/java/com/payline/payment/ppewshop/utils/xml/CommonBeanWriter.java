@@ -0,0 +1,152 @@
+package com.payline.payment.ppewshop.utils.xml;
+
+import com.payline.payment.ppewshop.bean.common.CustomerInformation;
+import com.payline.payment.ppewshop.bean.common.InitDossierIn;
+import com.payline.payment.ppewshop.bean.common.MerchantConfiguration;
+import com.payline.payment.ppewshop.bean.common.MerchantInformation;
+import com.payline.payment.ppewshop.bean.common.MerchantOrderReference;
+import com.payline.payment.ppewshop.bean.common.OrderInformation;
+import com.payline.payment.ppewshop.exception.InvalidDataException;
+
+/**
+ * Write the {@code bean.common} classes sent to the partner API as XML, through their getters instead of Jackson
+ * introspection.
+ * <p>
+ * The output is the same as the Jackson one, byte for byte: the elements come in the same order, a null bean or
+ * value is an empty element, characters are escaped as Jackson (Woodstox) does, and the characters not allowed in
+ * XML are rejected. The elements are in the default namespace declared by the request root element.
+ * Any new field of these beans must be added here as well: the parity tests compare both outputs.
+ */
+final class CommonBeanWriter {
+
+    private CommonBeanWriter() {
+    }
+
+    static void initDossierIn(StringBuilder xml, InitDossierIn initDossierIn) {
+        if (initDossierIn == null) {
+            empty(xml, "initDossierIn");
+            return;
+        }
+        xml.append("<initDossierIn>");
+        merchantInformation(xml, initDossierIn.getMerchantInformation());
+        merchantConfiguration(xml, initDossierIn.getMerchantConfiguration());
+        customerInformation(xml, initDossierIn.getCustomerInformation());
+        orderInformation(xml, initDossierIn.getOrderInformation());
+        orderReference(xml, initDossierIn.getOrderReference());
+        xml.append("</initDossierIn>");
+    }
+
+    static void merchantInformation(StringBuilder xml, MerchantInformation merchantInformation) {
+        if (merchantInformation == null) {
+            empty(xml, "merchantInformation");
+            return;
+        }
+        xml.append("<merchantInformation>");
+        element(xml, "merchandCode", merchantInformation.getMerchantCode());
+        element(xml, "distributorNumber", merchantInformation.getDistributorNumber());
+        element(xml, "countryCode", merchantInformation.getCountryCode());
+        xml.append("</merchantInformation>");
+    }
+
+    static void merchantConfiguration(StringBuilder xml, MerchantConfiguration merchantConfiguration) {
+        if (merchantConfiguration == null) {
+            empty(xml, "merchantConfiguration");
+            return;
+        }
+        xml.append("<merchantConfiguration>");
+        element(xml, "guarPushUrl", merchantConfiguration.getGuarPushUrl());
+        element(xml, "guarBackUrl", merchantConfiguration.getGuarBackUrl());
+        xml.append("</merchantConfiguration>");
+    }
+
+    static void customerInformation(StringBuilder xml, CustomerInformation customerInformation) {
+        if (customerInformation == null) {
+            empty(xml, "customerInformation");
+            return;
+        }
+        xml.append("<customerInformation>");
+        element(xml, "title", customerInformation.getTitle());
+        element(xml, "customerLanguage", customerInformation.getCustomerLanguage());
+        element(xml, "firstName", customerInformation.getFirstName());
+        element(xml, "name", customerInformation.getName());
+        element(xml, "birthDate", customerInformation.getBirthDate());
+        element(xml, "email", customerInformation.getEmail());
+        element(xml, "addressLine1", customerInformation.getAddressLine1());
+        element(xml, "addressLine2", customerInformation.getAddressLine2());
+        element(xml, "city", customerInformation.getCity());
+        element(xml, "postCode", customerInformation.getPostCode());
+        element(xml, "cellPhoneNumber", customerInformation.getCellPhoneNumber());
+        element(xml, "privatePhoneNumber", customerInformation.getPrivatePhoneNumber());
+        element(xml, "professionalPhoneNumber", customerInformation.getProfessionalPhoneNumber());
+        xml.append("</customerInformation>");
+    }
+
+    static void orderInformation(StringBuilder xml, OrderInformation orderInformation) {
+        if (orderInformation == null) {
+            empty(xml, "orderInformation");
+            return;
+        }
+        xml.append("<orderInformation>");
+        element(xml, "goodsCode", orderInformation.getGoodsCode());
+        element(xml, "price", orderInformation.getPrice());
+        element(xml, "financialProductType", orderInformation.getFinancialProductType());
+        xml.append("</orderInformation>");
+    }
+
+    static void orderReference(StringBuilder xml, MerchantOrderReference orderReference) {
+        if (orderReference == null) {
+            empty(xml, "orderReference");
+            return;
+        }
+        xml.append("<orderReference>");
+        element(xml, "merchandOrderId", orderReference.getMerchantOrderId());
+        element(xml, "merchandRef", orderReference.getMerchantRef());
+        xml.append("</orderReference>");
+    }
+
+    static void element(StringBuilder xml, String name, String value) {
+        if (value == null) {
+            empty(xml, name);
+            return;
+        }
+        xml.append('<').append(name).append('>');
+        escape(xml, value);
+        xml.append("</").append(name).append('>');
+    }
+
+    private static void empty(StringBuilder xml, String name) {
+        xml.append('<').append(name).append("/>");
+    }
+
+    /**
+     * Escape a text value as Jackson (Woodstox) does: '&amp;' and '&lt;' always, '&gt;' at the start or after ']'
+     * (so that "]]&gt;" never appears), carriage returns to keep them through the XML end-of-line normalization,
+     * and the control and non-character code points as character references.
+     */
+    private static void escape(StringBuilder xml, String value) {
+        // most values need no escaping: they are copied in one go, up to the first character to escape
+        int copied = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = null;
+            if (c == '<') {
+                replacement = "&lt;";
+            } else if (c == '&') {
+                replacement = "&amp;";
+            } else if (c == '>' && (i == 0 || value.charAt(i - 1) == ']')) {
+                replacement = "&gt;";
+            } else if (c == '\r' || (c >= 0x7f && c <= 0x9f) || c == 0xfffe || c == 0xffff) {
+                replacement = "&#x" + Integer.toHexString(c) + ";";
+            } else if (c < 0x20 && c != '\t' && c != '\n') {
+                throw new InvalidDataException("Unable to create XML: invalid character 0x" + Integer.toHexString(c));
+            }
+
+            if (replacement != null) {
+                xml.append(value, copied, i).append(replacement);
+                copied = i + 1;
+            }
+        }
+        xml.append(value, copied, value.length());
+    }
+
+}
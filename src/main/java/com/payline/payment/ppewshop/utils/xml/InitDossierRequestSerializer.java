@@ -0,0 +1,32 @@
+package com.payline.payment.ppewshop.utils.xml;
+
+import com.payline.payment.ppewshop.bean.request.InitDossierRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Serialize an {@link InitDossierRequest} without Jackson, with the {@link CommonBeanWriter} of its content.
+ * The XML is built in the thread's reusable char buffer, then encoded to the stream without an intermediate String.
+ * The output is the same as the Jackson one, byte for byte.
+ */
+class InitDossierRequestSerializer {
+
+    private static final String START = "<initDossier xmlns=\"urn:PPEWShopServiceV3\">";
+    private static final String END = "</initDossier>";
+
+    /**
+     * Serialize the request as UTF-8 encoded XML into the given stream, which is neither flushed nor closed.
+     *
+     * @param request the request to serialize
+     * @param out     the stream to write into
+     * @throws IOException if the stream cannot be written
+     */
+    void write(InitDossierRequest request, OutputStream out) throws IOException {
+        StringBuilder xml = ScratchBuffers.chars().append(START);
+        CommonBeanWriter.initDossierIn(xml, request.getInitDossierIn());
+        xml.append(END);
+        ScratchBuffers.writeUtf8(xml, out);
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.payline.payment.ppewshop.utils.xml;
+
+import com.payline.payment.ppewshop.bean.response.CheckStatusResponse;
+import com.payline.payment.ppewshop.bean.response.InitDossierResponse;
+import com.payline.payment.ppewshop.bean.response.PartnerResponse;
+import com.payline.payment.ppewshop.bean.response.PpewShopResponseKO;
+import com.payline.payment.ppewshop.exception.InvalidDataException;
+import com.payline.pmapi.logger.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+/**
+ * Decode a response of the partner API in a single pass: the root element tells whether it is the expected response
+ * or an error, whatever the HTTP status, and the same reader is handed to the right binding.
+ */
+public class PartnerResponseDecoder {
+    private static final Logger LOGGER = LogManager.getLogger(PartnerResponseDecoder.class);
+
+    static final String CHECK_STATUS_ROOT = "checkStatusResponse";
+    static final String INIT_DOSSIER_ROOT = "initDossierResponse";
+    static final String ERROR_ROOT = "PPEWShopServiceException";
+
+    /**
+     * The size of a response which can still be parsed by the fallback binding if the first one fails on it (bytes).
+     */
+    private static final int FALLBACK_READ_LIMIT = 64 * 1024;
+
+    /**
+     * Read an expected response from a reader positioned at its root element.
+     */
+    @FunctionalInterface
+    private interface Binding<T> {
+        T read(XMLStreamReader reader) throws XMLStreamException;
+    }
+
+    private PartnerResponseDecoder() {
+    }
+
+    /**
+     * @param xml the content of a checkStatus response
+     * @return the decoded response or error
+     * @throws InvalidDataException if the content is neither a checkStatus response nor an error
+     */
+    public static PartnerResponse<CheckStatusResponse> decodeCheckStatus(InputStream xml) {
+        // the streaming decoder only reads some fields: Jackson reads the whole response if it fails
+        return decode(xml, CHECK_STATUS_ROOT, CheckStatusResponseDecoder::decode, CheckStatusResponse::fromXmlWithJackson);
+    }
+
+    /**
+     * @param xml the content of an initDossier response
+     * @return the decoded response or error
+     * @throws InvalidDataException if the content is neither an initDossier response nor an error
+     */
+    public static PartnerResponse<InitDossierResponse> decodeInitDossier(InputStream xml) {
+        return decode(xml, INIT_DOSSIER_ROOT, InitDossierResponse::fromXml, null);
+    }
+
+    /**
+     * Tell whether a content is an error of the partner API, rather than an error page of something in front of it.
+     * Only its root element is read.
+     *
+     * @param content the content of a response
+     * @return true if its root element is the partner's error one
+     */
+    public static boolean isPartnerError(String content) {
+        if (content == null || content.isEmpty()) {
+            return false;
+        }
+        XMLStreamReader reader = null;
+        try {
+            reader = StaxReaders.create(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+            return ERROR_ROOT.equals(rootElement(reader));
+        } catch (XMLStreamException e) {
+            return false;
+        } finally {
+            close(reader);
+        }
+    }
+
+    private static <T> PartnerResponse<T> decode(InputStream xml, String expectedRoot, Binding<T> binding
+            , Function<InputStream, T> fallback) {
+        if (xml == null) {
+            throw new InvalidDataException("Empty partner response");
+        }
+        InputStream in = xml.markSupported() ? xml : new BufferedInputStream(xml);
+        in.mark(FALLBACK_READ_LIMIT);
+
+        XMLStreamReader reader = null;
+        try {
+            reader = StaxReaders.create(in);
+            String root = rootElement(reader);
+
+            if (ERROR_ROOT.equals(root)) {
+                return PartnerResponse.ko(PpewShopResponseKO.fromXml(reader));
+            }
+            if (!expectedRoot.equals(root)) {
+                throw new InvalidDataException("Unexpected partner response: " + root);
+            }
+
+            try {
+                return PartnerResponse.ok(binding.read(reader));
+            } catch (XMLStreamException | IllegalArgumentException e) {
+                if (fallback == null) {
+                    throw new InvalidDataException("Unable to parse the partner response", e);
+                }
+                LOGGER.warn("Unable to decode the partner response, falling back to Jackson", e);
+                in.reset();
+                return PartnerResponse.ok(fallback.apply(in));
+            }
+        } catch (XMLStreamException | IOException e) {
+            throw new InvalidDataException("Unable to parse the partner response", e);
+        } finally {
+            close(reader);
+        }
+    }
+
+    private static String rootElement(XMLStreamReader reader) throws XMLStreamException {
+        // skips the XML declaration, comments and whitespaces
+        return reader.nextTag() == XMLStreamConstants.START_ELEMENT ? reader.getLocalName() : null;
+    }
+
+    private static void close(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                LOGGER.warn("Unable to close the XML reader", e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.payline.payment.ppewshop.utils.xml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Per-thread buffers reused by the serialization of the requests, instead of char and byte arrays allocated and grown
+ * for each request.
+ * <p>
+ * A buffer grows up to the size of the largest request the thread has serialized, then stays at this size: after the
+ * first payments, serializing a request allocates nothing but its final, exactly sized, byte array.
+ * A buffer which had to grow beyond {@link #MAX_RETAINED_SIZE} is released, so that an exceptional request does not
+ * keep a large buffer alive.
+ * <p>
+ * A buffer is only valid until the next call of the same method on the same thread: it must not escape the
+ * serialization.
+ */
+final class ScratchBuffers {
+
+    /**
+     * The initial size of the buffers, a bit more than the usual size of a request (characters or bytes).
+     */
+    static final int INITIAL_SIZE = 2048;
+
+    /**
+     * The maximum size of a buffer kept for the next request (characters or bytes).
+     */
+    static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private static final ThreadLocal<StringBuilder> CHARS = ThreadLocal.withInitial(() -> new StringBuilder(INITIAL_SIZE));
+    private static final ThreadLocal<Bytes> BYTES = ThreadLocal.withInitial(() -> new Bytes(INITIAL_SIZE));
+    private static final ThreadLocal<byte[]> CHUNKS = ThreadLocal.withInitial(() -> new byte[CHUNK_SIZE]);
+
+    private ScratchBuffers() {
+    }
+
+    /**
+     * @return the empty char buffer of the current thread
+     */
+    static StringBuilder chars() {
+        StringBuilder chars = CHARS.get();
+        if (chars.capacity() > MAX_RETAINED_SIZE) {
+            chars = new StringBuilder(INITIAL_SIZE);
+            CHARS.set(chars);
+        }
+        chars.setLength(0);
+        return chars;
+    }
+
+    /**
+     * @return the empty byte buffer of the current thread
+     */
+    static Bytes bytes() {
+        Bytes bytes = BYTES.get();
+        if (bytes.capacity() > MAX_RETAINED_SIZE) {
+            bytes = new Bytes(INITIAL_SIZE);
+            BYTES.set(bytes);
+        }
+        bytes.reset();
+        return bytes;
+    }
+
+    /**
+     * Write the chars as UTF-8 into the stream, through a small per-thread chunk instead of an encoded copy of the
+     * whole content. As with {@link String#getBytes(java.nio.charset.Charset)}, an unpaired surrogate is written '?'.
+     *
+     * @param chars the chars to write
+     * @param out   the stream to write into
+     * @throws IOException if the stream cannot be written
+     */
+    static void writeUtf8(CharSequence chars, OutputStream out) throws IOException {
+        byte[] chunk = CHUNKS.get();
+        int length = chars.length();
+        int position = 0;
+        for (int i = 0; i < length; i++) {
+            if (position > chunk.length - 4) {
+                out.write(chunk, 0, position);
+                position = 0;
+            }
+
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                chunk[position++] = (byte) c;
+            } else if (c < 0x800) {
+                chunk[position++] = (byte) (0xc0 | c >> 6);
+                chunk[position++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+                chunk[position++] = (byte) (0xf0 | codePoint >> 18);
+                chunk[position++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                chunk[position++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                chunk[position++] = (byte) (0x80 | codePoint & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                chunk[position++] = '?';
+            } else {
+                chunk[position++] = (byte) (0xe0 | c >> 12);
+                chunk[position++] = (byte) (0x80 | c >> 6 & 0x3f);
+                chunk[position++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        out.write(chunk, 0, position);
+    }
+
+    /**
+     * Byte buffer whose content can be decoded in place, without the copy made by
+     * {@link ByteArrayOutputStream#toByteArray()}.
+     */
+    static final class Bytes extends ByteArrayOutputStream {
+        Bytes(int size) {
+            super(size);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+
+        String utf8() {
+            return new String(buf, 0, count, StandardCharsets.UTF_8);
+        }
+    }
+
+}
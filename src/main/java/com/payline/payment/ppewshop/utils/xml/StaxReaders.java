@@ -0,0 +1,39 @@
+package com.payline.payment.ppewshop.utils.xml;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+
+/**
+ * Create the StAX readers of the partner responses.
+ */
+class StaxReaders {
+
+    /**
+     * Thread-safe once configured: shared by all the decodings.
+     */
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private StaxReaders() {
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // the partner sends no DTD: never resolve one (XXE)
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * @param xml the stream to read, which closing the reader leaves open
+     * @return a reader positioned at the start of the document
+     * @throws XMLStreamException if the stream cannot be read
+     */
+    static XMLStreamReader create(InputStream xml) throws XMLStreamException {
+        return FACTORY.createXMLStreamReader(xml);
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.payline.payment.ppewshop.utils.xml;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.xml.JacksonXmlModule;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.payline.payment.ppewshop.bean.request.CheckStatusRequest;
+import com.payline.payment.ppewshop.bean.request.InitDossierRequest;
+import com.payline.payment.ppewshop.bean.request.PpewShopRequest;
+import com.payline.payment.ppewshop.exception.InvalidDataException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serialize the requests sent to the partner API.
+ * The mapper is built once for the whole process, and holds one {@link ObjectWriter} per request type, with its
+ * serializer already resolved: a request only pays for writing its own content.
+ * {@link ObjectWriter} being immutable, the writers are shared by all threads.
+ * The known requests are written without Jackson instead, directly from their getters: {@link CheckStatusRequest}
+ * from a template, and {@link InitDossierRequest} with the {@link CommonBeanWriter}. The writers stay the reference
+ * of their output, and are still used for any other request.
+ */
+public class XmlSerializer {
+
+    private final XmlMapper mapper;
+    private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+    private final CheckStatusRequestSerializer checkStatusRequestSerializer = new CheckStatusRequestSerializer();
+    private final InitDossierRequestSerializer initDossierRequestSerializer = new InitDossierRequestSerializer();
+
+    // --- Singleton Holder pattern + initialization BEGIN
+    XmlSerializer() {
+        JacksonXmlModule xmlModule = new JacksonXmlModule();
+        xmlModule.setDefaultUseWrapper(false);
+        mapper = new XmlMapper(xmlModule);
+        // the caller owns the stream given to writeXml()
+        mapper.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        // build the writers of the known requests upfront, instead of on the first payment
+        this.writerFor(CheckStatusRequest.class);
+        this.writerFor(InitDossierRequest.class);
+    }
+
+    private static class Holder {
+        private static final XmlSerializer instance = new XmlSerializer();
+    }
+
+    public static XmlSerializer getInstance() {
+        return Holder.instance;
+    }
+    // --- Singleton Holder pattern + initialization END
+
+    /**
+     * @param type the request type
+     * @return the writer of this request type, built on first use if it is not a known one
+     */
+    ObjectWriter writerFor(Class<?> type) {
+        return writers.computeIfAbsent(type, mapper::writerFor);
+    }
+
+    /**
+     * Serialize the request as an XML String.
+     *
+     * @param request the request to serialize
+     * @return the XML
+     */
+    public String toXml(PpewShopRequest request) {
+        if (request instanceof CheckStatusRequest || request instanceof InitDossierRequest) {
+            ScratchBuffers.Bytes out = ScratchBuffers.bytes();
+            this.writeXml(request, out);
+            return out.utf8();
+        }
+        try {
+            return this.writerFor(request.getClass()).writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new InvalidDataException("Unable to create XML", e);
+        }
+    }
+
+    /**
+     * Serialize the request as UTF-8 encoded XML, through the thread's reusable byte buffer: the only allocation is
+     * the returned array, of the exact size of the XML.
+     *
+     * @param request the request to serialize
+     * @return the XML
+     */
+    public byte[] toBytes(PpewShopRequest request) {
+        ScratchBuffers.Bytes out = ScratchBuffers.bytes();
+        this.writeXml(request, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Serialize the request as UTF-8 encoded XML directly into the given stream, without any intermediate String.
+     * The stream is neither flushed nor closed.
+     *
+     * @param request the request to serialize
+     * @param out     the stream to write into
+     */
+    public void writeXml(PpewShopRequest request, OutputStream out) {
+        try {
+            if (request instanceof CheckStatusRequest) {
+                checkStatusRequestSerializer.write((CheckStatusRequest) request, out);
+                return;
+            }
+            if (request instanceof InitDossierRequest) {
+                initDossierRequestSerializer.write((InitDossierRequest) request, out);
+                return;
+            }
+            this.writerFor(request.getClass()).writeValue(out, request);
+        } catch (IOException e) {
+            throw new InvalidDataException("Unable to create XML", e);
+        }
+    }
+
+}
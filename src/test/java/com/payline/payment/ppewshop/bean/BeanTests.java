@@ -7,6 +7,7 @@ import com.payline.payment.ppewshop.bean.request.InitDossierRequest;
 import com.payline.payment.ppewshop.bean.response.CheckStatusResponse;
 import com.payline.payment.ppewshop.bean.response.InitDossierResponse;
 import com.payline.payment.ppewshop.bean.response.PpewShopResponseKO;
+import com.payline.payment.ppewshop.utils.xml.XmlSerializer;
 import com.payline.pmapi.bean.common.FailureCause;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -14,6 +15,8 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.stream.Stream;
 
 class BeanTests {
@@ -95,7 +98,7 @@ class BeanTests {
 
         InitDossierRequest request = new InitDossierRequest(dossierIn);
 
-        Assertions.assertEquals(MockUtils.templateInitDossierRequest, request.toXml());
+        Assertions.assertEquals(MockUtils.templateInitDossierRequest, XmlSerializer.getInstance().toXml(request));
     }
 
     @Test
@@ -114,7 +117,7 @@ class BeanTests {
 
         CheckStatusRequest request = new CheckStatusRequest(checkStatusIn);
 
-        Assertions.assertEquals(MockUtils.templateCheckStatusRequest, request.toXml());
+        Assertions.assertEquals(MockUtils.templateCheckStatusRequest, XmlSerializer.getInstance().toXml(request));
     }
 
     @Test
@@ -150,4 +153,19 @@ class BeanTests {
         Assertions.assertEquals(errorDescription, responseKO.getErrorDescription());
     }
 
+    @Test
+    void responsesFromStreamTest() {
+        CheckStatusResponse checkStatusResponse = CheckStatusResponse.fromXml(new ByteArrayInputStream(MockUtils.templateCheckStatusResponse
+                .replace(MockUtils.STATUS_CODE, CheckStatusOut.StatusCode.A.name()).getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertEquals(CheckStatusOut.StatusCode.A, checkStatusResponse.getCheckStatusOut().getStatusCode());
+        Assertions.assertEquals(authorizationNumber, checkStatusResponse.getCheckStatusOut().getCreditAuthorizationNumber());
+
+        InitDossierResponse initDossierResponse = InitDossierResponse.fromXml(new ByteArrayInputStream(MockUtils.templateInitDossierResponse.getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertEquals(redirectionUrl, initDossierResponse.getInitDossierOut().getRedirectionUrl());
+
+        PpewShopResponseKO responseKO = PpewShopResponseKO.fromXml(new ByteArrayInputStream(MockUtils.templateResponseError
+                .replace("ERROR_CODE", errorCode).getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertEquals(errorCode, responseKO.getErrorCode().code);
+    }
+
 }
@@ -0,0 +1,60 @@
+package com.payline.payment.ppewshop.exception;
+
+import com.payline.pmapi.bean.common.FailureCause;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Supplier;
+
+/**
+ * Compare the throughput of the partner KO path with an exception filling its stack trace, and with a
+ * {@link BusinessException}, thrown below a call stack as deep as the one of a payment in the host application.
+ * Not a unit test (it is excluded from the build like the other *IT classes): run it manually. The throughputs are
+ * reported, not asserted: they depend on the machine.
+ */
+class BusinessExceptionBenchmarkIT {
+
+    private static final int WARM_UP = 20_000;
+    private static final int ITERATIONS = 200_000;
+    private static final int STACK_DEPTH = 100;
+
+    @Test
+    void stackTraceVsStackless() {
+        Supplier<PluginException> withStackTrace = () -> new PluginException("21999", FailureCause.INVALID_DATA);
+        Supplier<PluginException> stackless = () -> new BusinessException("21999", FailureCause.INVALID_DATA);
+
+        for (int i = 0; i < WARM_UP; i++) {
+            throwAndCatch(withStackTrace, STACK_DEPTH);
+            throwAndCatch(stackless, STACK_DEPTH);
+        }
+
+        long withStackTraceOps = opsPerSecond(withStackTrace);
+        long stacklessOps = opsPerSecond(stackless);
+
+        System.out.printf("KO path with stack trace: %d ops/s, stackless: %d ops/s (x%.1f)%n"
+                , withStackTraceOps, stacklessOps, (double) stacklessOps / withStackTraceOps);
+    }
+
+    private static long opsPerSecond(Supplier<PluginException> exception) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            throwAndCatch(exception, STACK_DEPTH);
+        }
+        return ITERATIONS * 1_000_000_000L / (System.nanoTime() - start);
+    }
+
+    private static String throwAndCatch(Supplier<PluginException> exception, int depth) {
+        try {
+            return deepThrow(exception, depth);
+        } catch (PluginException e) {
+            return e.getErrorCode();
+        }
+    }
+
+    private static String deepThrow(Supplier<PluginException> exception, int depth) {
+        if (depth == 0) {
+            throw exception.get();
+        }
+        return deepThrow(exception, depth - 1);
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.payline.payment.ppewshop.exception;
+
+import com.payline.pmapi.bean.common.FailureCause;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BusinessExceptionTest {
+
+    @Test
+    void noStackTrace() {
+        BusinessException e = new BusinessException("21999", FailureCause.INVALID_DATA);
+
+        assertEquals(0, e.getStackTrace().length);
+        assertEquals("21999", e.getErrorCode());
+        assertEquals(FailureCause.INVALID_DATA, e.getFailureCause());
+    }
+
+    @Test
+    void partnerOutcomesWithoutStackTrace() {
+        assertEquals(0, new InvalidMerchantCodeException("1212121212").getStackTrace().length);
+        assertEquals(0, new InvalidDistributorNumberException("2323232323").getStackTrace().length);
+        assertEquals(0, new InvalidTransactionIdException("1234567890").getStackTrace().length);
+        assertEquals(0, new TooManyCallsException("too many calls").getStackTrace().length);
+    }
+
+    @Test
+    void faultsWithStackTrace() {
+        assertNotEquals(0, new PluginException("plugin error").getStackTrace().length);
+        assertNotEquals(0, new InvalidDataException("invalid data").getStackTrace().length);
+    }
+
+    @Test
+    void defaultFailureCause() {
+        assertEquals(FailureCause.INTERNAL_ERROR, new InvalidTransactionIdException("1234567890").getFailureCause());
+    }
+
+    @Test
+    void emptyMessage() {
+        assertThrows(IllegalStateException.class, () -> new BusinessException(""));
+    }
+
+}
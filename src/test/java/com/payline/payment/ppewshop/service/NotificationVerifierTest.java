@@ -0,0 +1,135 @@
+package com.payline.payment.ppewshop.service;
+
+import com.payline.payment.ppewshop.MockUtils;
+import com.payline.payment.ppewshop.bean.common.CheckStatusIn;
+import com.payline.payment.ppewshop.bean.common.CheckStatusOut;
+import com.payline.payment.ppewshop.bean.common.MerchantInformation;
+import com.payline.payment.ppewshop.bean.configuration.RequestConfiguration;
+import com.payline.payment.ppewshop.bean.request.CheckStatusRequest;
+import com.payline.payment.ppewshop.bean.response.CheckStatusResponse;
+import com.payline.payment.ppewshop.exception.PluginException;
+import com.payline.payment.ppewshop.utils.metrics.Metrics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class NotificationVerifierTest {
+
+    @InjectMocks
+    private NotificationVerifier verifier = new NotificationVerifier(true, 2);
+
+    @Mock
+    private HttpService httpService;
+
+    @Mock
+    private PendingDossierPoller pendingDossierPoller;
+
+    private final Metrics metrics = Metrics.getInstance();
+
+    private final RequestConfiguration configuration = new RequestConfiguration(
+            MockUtils.aContractConfiguration()
+            , MockUtils.anEnvironment()
+            , MockUtils.aPartnerConfiguration()
+    );
+
+    private final CheckStatusRequest request = new CheckStatusRequest(CheckStatusIn.Builder.aCheckStatusIn()
+            .withTransactionId("1234567890123")
+            .withMerchantInformation(MerchantInformation.Builder.aMerchantInformation()
+                    .withMerchantCode("merchantCode").withDistributorNumber("distributor").build())
+            .build());
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    private static CheckStatusResponse aResponse(CheckStatusOut.StatusCode statusCode) {
+        return new CheckStatusResponse(CheckStatusOut.Builder.aCheckStatusOut()
+                .withTransactionId("1234567890123")
+                .withStatusCode(statusCode)
+                .build());
+    }
+
+    @ParameterizedTest
+    @EnumSource(CheckStatusOut.StatusCode.class)
+    void verifyAsync(CheckStatusOut.StatusCode statusCode) {
+        // given: the partner has not answered yet
+        CompletableFuture<CheckStatusResponse> pending = new CompletableFuture<>();
+        Mockito.doReturn(pending).when(httpService).checkStatusAsync(any(), any());
+        long accepted = metrics.get(NotificationVerifier.ACCEPTED);
+
+        // when: the notification is verified in the background
+        Assertions.assertSame(pending, verifier.verifyAsync(configuration, request));
+        Assertions.assertEquals(1, verifier.availablePermits());
+        Assertions.assertEquals(accepted + 1, metrics.get(NotificationVerifier.ACCEPTED));
+
+        // then: once answered, a studied dossier is polled
+        pending.complete(aResponse(statusCode));
+        Assertions.assertEquals(2, verifier.availablePermits());
+        verify(pendingDossierPoller, Mockito.times(statusCode == CheckStatusOut.StatusCode.E ? 1 : 0)).track(configuration, request);
+    }
+
+    @Test
+    void verifyAsync_full() {
+        Mockito.doReturn(new CompletableFuture<>()).when(httpService).checkStatusAsync(any(), any());
+        long rejected = metrics.get(NotificationVerifier.REJECTED);
+
+        Assertions.assertNotNull(verifier.verifyAsync(configuration, request));
+        Assertions.assertNotNull(verifier.verifyAsync(configuration, request));
+
+        // the caller verifies it itself
+        Assertions.assertNull(verifier.verifyAsync(configuration, request));
+        Assertions.assertEquals(rejected + 1, metrics.get(NotificationVerifier.REJECTED));
+    }
+
+    @Test
+    void verifyAsync_failure() {
+        CompletableFuture<CheckStatusResponse> pending = new CompletableFuture<>();
+        Mockito.doReturn(pending).when(httpService).checkStatusAsync(any(), any());
+        long failed = metrics.get(NotificationVerifier.FAILED);
+
+        Assertions.assertNotNull(verifier.verifyAsync(configuration, request));
+        pending.completeExceptionally(new PluginException("timeout"));
+
+        Assertions.assertEquals(2, verifier.availablePermits());
+        Assertions.assertEquals(failed + 1, metrics.get(NotificationVerifier.FAILED));
+    }
+
+    @Test
+    void verifyAsync_alreadyAnswered() {
+        // a final status in the cache: answered at once, no need to acknowledge first
+        Mockito.doReturn(CompletableFuture.completedFuture(aResponse(CheckStatusOut.StatusCode.A)))
+                .when(httpService).checkStatusAsync(any(), any());
+        long accepted = metrics.get(NotificationVerifier.ACCEPTED);
+
+        CompletableFuture<CheckStatusResponse> verification = verifier.verifyAsync(configuration, request);
+
+        // the caller gets the answer, without calling the partner again
+        Assertions.assertTrue(verification.isDone());
+        Assertions.assertEquals(CheckStatusOut.StatusCode.A, verification.join().getCheckStatusOut().getStatusCode());
+        Assertions.assertEquals(2, verifier.availablePermits());
+        Assertions.assertEquals(accepted, metrics.get(NotificationVerifier.ACCEPTED));
+        verify(httpService, Mockito.times(1)).checkStatusAsync(any(), any());
+    }
+
+    @Test
+    void verifyAsync_disabled() {
+        NotificationVerifier disabled = new NotificationVerifier(false, 2);
+
+        Assertions.assertNull(disabled.verifyAsync(configuration, request));
+        verify(httpService, never()).checkStatusAsync(any(), any());
+    }
+
+}
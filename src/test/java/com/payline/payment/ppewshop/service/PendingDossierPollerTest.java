@@ -0,0 +1,254 @@
+package com.payline.payment.ppewshop.service;
+
+import com.payline.payment.ppewshop.MockUtils;
+import com.payline.payment.ppewshop.bean.common.CheckStatusIn;
+import com.payline.payment.ppewshop.bean.common.CheckStatusOut;
+import com.payline.payment.ppewshop.bean.common.MerchantInformation;
+import com.payline.payment.ppewshop.bean.configuration.RequestConfiguration;
+import com.payline.payment.ppewshop.bean.request.CheckStatusRequest;
+import com.payline.payment.ppewshop.bean.response.CheckStatusResponse;
+import com.payline.payment.ppewshop.exception.InvalidTransactionIdException;
+import com.payline.payment.ppewshop.exception.PluginException;
+import com.payline.payment.ppewshop.exception.TooManyCallsException;
+import com.payline.payment.ppewshop.utils.metrics.Metrics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class PendingDossierPollerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final ScheduledExecutorService scheduler = Mockito.mock(ScheduledExecutorService.class);
+    // the batches are run by the test itself
+    private final List<Runnable> batches = new ArrayList<>();
+    private final Metrics metrics = Metrics.getInstance();
+
+    // first poll after 2 seconds, then 4 and 8 seconds, within 20 seconds
+    @InjectMocks
+    private PendingDossierPoller poller = new PendingDossierPoller(true, 2_000, 8_000, 20_000, 3
+            , scheduler, batches::add, now::get);
+
+    @Mock
+    private HttpService httpService;
+
+    private final RequestConfiguration configuration = new RequestConfiguration(
+            MockUtils.aContractConfiguration()
+            , MockUtils.anEnvironment()
+            , MockUtils.aPartnerConfiguration()
+    );
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    private static CheckStatusRequest aRequest(String merchantCode, String transactionId) {
+        return new CheckStatusRequest(CheckStatusIn.Builder.aCheckStatusIn()
+                .withTransactionId(transactionId)
+                .withMerchantInformation(MerchantInformation.Builder.aMerchantInformation()
+                        .withMerchantCode(merchantCode).withDistributorNumber("distributor").build())
+                .build());
+    }
+
+    private static CheckStatusResponse aResponse(CheckStatusOut.StatusCode statusCode) {
+        return new CheckStatusResponse(CheckStatusOut.Builder.aCheckStatusOut().withStatusCode(statusCode).build());
+    }
+
+    /**
+     * Move the clock forward, then look for the due dossiers and poll them.
+     */
+    private void advance(long millis) {
+        now.addAndGet(millis);
+        poller.tick();
+        List<Runnable> due = new ArrayList<>(batches);
+        batches.clear();
+        due.forEach(Runnable::run);
+    }
+
+    @Test
+    void track() {
+        CheckStatusRequest request = aRequest("merchant", "transaction");
+
+        Assertions.assertTrue(poller.track(configuration, request));
+        // already tracked
+        Assertions.assertFalse(poller.track(configuration, request));
+        Assertions.assertEquals(1, poller.size());
+        // the scheduler is started once
+        verify(scheduler, times(1)).scheduleWithFixedDelay(any(), anyLong(), anyLong(), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void track_disabled() {
+        PendingDossierPoller disabled = new PendingDossierPoller(false, 2_000, 8_000, 20_000, 3
+                , scheduler, batches::add, now::get);
+
+        Assertions.assertFalse(disabled.track(configuration, aRequest("merchant", "transaction")));
+        Assertions.assertEquals(0, disabled.size());
+        verify(scheduler, never()).scheduleWithFixedDelay(any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void track_full() {
+        long rejected = metrics.get(PendingDossierPoller.REJECTED);
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(poller.track(configuration, aRequest("merchant", "transaction" + i)));
+        }
+
+        Assertions.assertFalse(poller.track(configuration, aRequest("merchant", "transaction3")));
+        Assertions.assertEquals(3, poller.size());
+        Assertions.assertEquals(rejected + 1, metrics.get(PendingDossierPoller.REJECTED));
+    }
+
+    @Test
+    void poll_untilResolved() {
+        // given: a dossier studied for a while, then accepted
+        Mockito.when(httpService.checkStatus(any(), any())).thenReturn(
+                aResponse(CheckStatusOut.StatusCode.E)
+                , aResponse(CheckStatusOut.StatusCode.E)
+                , aResponse(CheckStatusOut.StatusCode.A));
+        long resolved = metrics.get(PendingDossierPoller.RESOLVED);
+        poller.track(configuration, aRequest("merchant", "transaction"));
+
+        // then: it is polled after 2 seconds, then 4 seconds later, then 8 seconds later
+        advance(1_999);
+        verify(httpService, never()).checkStatus(any(), any());
+        advance(1);
+        verify(httpService, times(1)).checkStatus(any(), any());
+        advance(3_999);
+        verify(httpService, times(1)).checkStatus(any(), any());
+        advance(1);
+        verify(httpService, times(2)).checkStatus(any(), any());
+        advance(8_000);
+        verify(httpService, times(3)).checkStatus(any(), any());
+
+        // and: it is not polled anymore once its status is known
+        Assertions.assertEquals(0, poller.size());
+        Assertions.assertEquals(resolved + 1, metrics.get(PendingDossierPoller.RESOLVED));
+        advance(8_000);
+        verify(httpService, times(3)).checkStatus(any(), any());
+    }
+
+    @Test
+    void poll_deadline() {
+        // given: a dossier which stays studied
+        Mockito.when(httpService.checkStatus(any(), any())).thenReturn(aResponse(CheckStatusOut.StatusCode.E));
+        long expired = metrics.get(PendingDossierPoller.EXPIRED);
+        poller.track(configuration, aRequest("merchant", "transaction"));
+
+        // when: polled at 2, 6, 14 seconds: the next poll, at 22 seconds, would be after the deadline
+        advance(2_000);
+        advance(4_000);
+        advance(8_000);
+
+        // then
+        verify(httpService, times(3)).checkStatus(any(), any());
+        Assertions.assertEquals(0, poller.size());
+        Assertions.assertEquals(expired + 1, metrics.get(PendingDossierPoller.EXPIRED));
+    }
+
+    @Test
+    void poll_batchedByMerchant() {
+        Mockito.when(httpService.checkStatus(any(), any())).thenReturn(aResponse(CheckStatusOut.StatusCode.E));
+        poller.track(configuration, aRequest("merchant1", "transaction1"));
+        poller.track(configuration, aRequest("merchant1", "transaction2"));
+        poller.track(configuration, aRequest("merchant2", "transaction1"));
+
+        now.addAndGet(2_000);
+        poller.tick();
+
+        // one batch per merchant
+        Assertions.assertEquals(2, batches.size());
+        batches.forEach(Runnable::run);
+        verify(httpService, times(3)).checkStatus(any(), any());
+    }
+
+    @Test
+    void poll_errors() {
+        CheckStatusRequest unknown = aRequest("merchant", "unknown");
+        CheckStatusRequest unreachable = aRequest("merchant", "unreachable");
+        Mockito.when(httpService.checkStatus(any(), eq(unknown))).thenThrow(new InvalidTransactionIdException("unknown"));
+        Mockito.when(httpService.checkStatus(any(), eq(unreachable))).thenThrow(new PluginException("timeout"));
+        long resolved = metrics.get(PendingDossierPoller.RESOLVED);
+        long dropped = metrics.get(PendingDossierPoller.DROPPED);
+        poller.track(configuration, unknown);
+        poller.track(configuration, unreachable);
+
+        advance(2_000);
+
+        // the partner does not know the transaction: no need to ask again, unlike after a technical error
+        Assertions.assertEquals(1, poller.size());
+        advance(4_000);
+        verify(httpService, times(1)).checkStatus(any(), eq(unknown));
+        verify(httpService, times(2)).checkStatus(any(), eq(unreachable));
+        // dropped, not resolved: its status is still unknown
+        Assertions.assertEquals(dropped + 1, metrics.get(PendingDossierPoller.DROPPED));
+        Assertions.assertEquals(resolved, metrics.get(PendingDossierPoller.RESOLVED));
+    }
+
+    @Test
+    void poll_tooManyCalls() {
+        // given: the merchant has too many calls in progress, then the dossier is accepted
+        Mockito.when(httpService.checkStatus(any(), any()))
+                .thenThrow(new TooManyCallsException("too many calls"))
+                .thenReturn(aResponse(CheckStatusOut.StatusCode.A));
+        long dropped = metrics.get(PendingDossierPoller.DROPPED);
+        poller.track(configuration, aRequest("merchant", "transaction"));
+
+        // when: the call is refused
+        advance(2_000);
+
+        // then: the dossier is still tracked, and polled again later
+        Assertions.assertEquals(1, poller.size());
+        advance(4_000);
+        verify(httpService, times(2)).checkStatus(any(), any());
+        Assertions.assertEquals(0, poller.size());
+        Assertions.assertEquals(dropped, metrics.get(PendingDossierPoller.DROPPED));
+    }
+
+    @Test
+    void tick_workersBusy() {
+        PendingDossierPoller busy = new PendingDossierPoller(true, 2_000, 8_000, 20_000, 3
+                , scheduler, batch -> {
+            throw new RejectedExecutionException();
+        }, now::get);
+        busy.track(configuration, aRequest("merchant", "transaction"));
+        now.addAndGet(2_000);
+
+        busy.tick();
+
+        // the dossier is still tracked, and due again on the next tick
+        Assertions.assertEquals(1, busy.size());
+    }
+
+
+    @Test
+    void untrack() {
+        Mockito.when(httpService.checkStatus(any(), any())).thenReturn(aResponse(CheckStatusOut.StatusCode.E));
+        poller.track(configuration, aRequest("merchant", "transaction"));
+
+        // the final status is known by Payline: no more polls
+        Assertions.assertTrue(poller.untrack(aRequest("merchant", "transaction")));
+        Assertions.assertFalse(poller.untrack(aRequest("merchant", "transaction")));
+        advance(2_000);
+        verify(httpService, never()).checkStatus(any(), any());
+    }
+
+}
@@ -3,7 +3,13 @@ package com.payline.payment.ppewshop.service.impl;
 import com.payline.payment.ppewshop.MockUtils;
 import com.payline.payment.ppewshop.bean.common.CheckStatusOut;
 import com.payline.payment.ppewshop.bean.response.CheckStatusResponse;
+import com.payline.payment.ppewshop.exception.InvalidDataException;
+import com.payline.payment.ppewshop.exception.TooManyCallsException;
+import com.payline.payment.ppewshop.bean.request.CheckStatusRequest;
 import com.payline.payment.ppewshop.service.HttpService;
+import com.payline.payment.ppewshop.service.NotificationVerifier;
+import com.payline.payment.ppewshop.service.PendingDossierPoller;
+import com.payline.payment.ppewshop.utils.Constants;
 import com.payline.pmapi.bean.common.FailureCause;
 import com.payline.pmapi.bean.common.FailureTransactionStatus;
 import com.payline.pmapi.bean.common.OnHoldTransactionStatus;
@@ -12,6 +18,7 @@ import com.payline.pmapi.bean.notification.request.NotificationRequest;
 import com.payline.pmapi.bean.notification.response.NotificationResponse;
 import com.payline.pmapi.bean.notification.response.impl.PaymentResponseByNotificationResponse;
 import com.payline.pmapi.bean.notification.response.impl.TransactionStateChangedResponse;
+import com.payline.pmapi.bean.payment.request.NotifyTransactionStatusRequest;
 import com.payline.pmapi.bean.payment.response.impl.PaymentResponseFailure;
 import com.payline.pmapi.bean.payment.response.impl.PaymentResponseOnHold;
 import com.payline.pmapi.bean.payment.response.impl.PaymentResponseSuccess;
@@ -21,11 +28,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -37,6 +46,12 @@ class NotificationServiceImplTest {
     @Mock
     private HttpService httpService = HttpService.getInstance();
 
+    @Mock
+    private PendingDossierPoller pendingDossierPoller = PendingDossierPoller.getInstance();
+
+    @Mock
+    private NotificationVerifier notificationVerifier = NotificationVerifier.getInstance();
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.initMocks(this);
@@ -72,6 +87,85 @@ class NotificationServiceImplTest {
         Assertions.assertEquals(responseClass, transactionStateChangedResponse.getTransactionStatus().getClass());
     }
 
+    @Test
+    void parseRepeatedStillStudied() {
+        // given: a dossier studied, then accepted by the time the partner repeats its notification
+        NotificationRequest request = MockUtils.aPaylineNotificationRequestBuilder().withTransactionId("1").build();
+        Mockito.doReturn(CheckStatusResponse.fromXml(MockUtils.templateCheckStatusResponse
+                        .replace(MockUtils.STATUS_CODE, CheckStatusOut.StatusCode.E.name()))
+                , CheckStatusResponse.fromXml(MockUtils.templateCheckStatusResponse
+                        .replace(MockUtils.STATUS_CODE, CheckStatusOut.StatusCode.A.name())))
+                .when(httpService).checkStatus(any(), any());
+
+        NotificationResponse first = service.parse(request);
+        NotificationResponse repeat = service.parse(request);
+
+        // then: the repeat is verified again, and answered with the new status
+        Mockito.verify(httpService, Mockito.times(2)).checkStatus(any(), any());
+        Assertions.assertEquals(OnHoldTransactionStatus.class, ((TransactionStateChangedResponse) first).getTransactionStatus().getClass());
+        Assertions.assertEquals(SuccessTransactionStatus.class, ((TransactionStateChangedResponse) repeat).getTransactionStatus().getClass());
+    }
+
+    @Test
+    void parseFastAcknowledged() {
+        // given: the status is verified in the background
+        NotificationRequest request = MockUtils.aPaylineNotificationRequestBuilder().withTransactionId("1").build();
+        Mockito.doReturn(new CompletableFuture<>()).when(notificationVerifier).verifyAsync(any(), any());
+
+        NotificationResponse response = service.parse(request);
+
+        // then: the notification is acknowledged as on hold, without waiting for the partner
+        Mockito.verify(httpService, Mockito.never()).checkStatus(any(), any());
+        TransactionStateChangedResponse transactionStateChangedResponse = (TransactionStateChangedResponse) response;
+        Assertions.assertEquals(OnHoldTransactionStatus.class, transactionStateChangedResponse.getTransactionStatus().getClass());
+        Assertions.assertEquals("1234567890123", transactionStateChangedResponse.getPartnerTransactionId());
+    }
+
+    @Test
+    void parseAlreadyVerified() {
+        // given: the verification is answered at once
+        NotificationRequest request = MockUtils.aPaylineNotificationRequestBuilder().withTransactionId("1").build();
+        Mockito.doReturn(CompletableFuture.completedFuture(CheckStatusResponse.fromXml(MockUtils.templateCheckStatusResponse
+                .replace(MockUtils.STATUS_CODE, CheckStatusOut.StatusCode.A.name()))))
+                .when(notificationVerifier).verifyAsync(any(), any());
+
+        NotificationResponse response = service.parse(request);
+
+        // then: its answer is used, without calling the partner again
+        Mockito.verify(httpService, Mockito.never()).checkStatus(any(), any());
+        TransactionStateChangedResponse transactionStateChangedResponse = (TransactionStateChangedResponse) response;
+        Assertions.assertEquals(SuccessTransactionStatus.class, transactionStateChangedResponse.getTransactionStatus().getClass());
+    }
+
+    @Test
+    void parseVerificationRejected() {
+        // given: the verification fails at once, the merchant having too many calls in progress
+        NotificationRequest request = MockUtils.aPaylineNotificationRequestBuilder().withTransactionId("1").build();
+        CompletableFuture<CheckStatusResponse> rejected = new CompletableFuture<>();
+        rejected.completeExceptionally(new TooManyCallsException("too many calls"));
+        Mockito.doReturn(rejected).when(notificationVerifier).verifyAsync(any(), any());
+
+        NotificationResponse response = service.parse(request);
+
+        // then: answered as on hold, without calling the partner again
+        Mockito.verify(httpService, Mockito.never()).checkStatus(any(), any());
+        TransactionStateChangedResponse transactionStateChangedResponse = (TransactionStateChangedResponse) response;
+        Assertions.assertEquals(OnHoldTransactionStatus.class, transactionStateChangedResponse.getTransactionStatus().getClass());
+    }
+
+    @Test
+    void parseTooManyCalls() {
+        // given: the merchant has too many calls in progress
+        NotificationRequest request = MockUtils.aPaylineNotificationRequestBuilder().withTransactionId("1").build();
+        Mockito.doThrow(new TooManyCallsException("too many calls")).when(httpService).checkStatus(any(), any());
+
+        NotificationResponse response = service.parse(request);
+
+        // then: the notification is answered as on hold
+        TransactionStateChangedResponse transactionStateChangedResponse = (TransactionStateChangedResponse) response;
+        Assertions.assertEquals(OnHoldTransactionStatus.class, transactionStateChangedResponse.getTransactionStatus().getClass());
+    }
+
     @Test
     void parseStatusChangedException() {
         NotificationRequest request = MockUtils.aPaylineNotificationRequestBuilder().withTransactionId("1").build();
@@ -134,4 +228,75 @@ class NotificationServiceImplTest {
         Assertions.assertEquals("1234567890123", service.getTransactionIdFromURL("http://wwww.this.is.an.url.com/transactionDeId=1234567890123&foo=bar"));
         Assertions.assertEquals("1234567890123", service.getTransactionIdFromURL("http://wwww.this.is.an.url.com/transactionDeId=1234567890123"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getTransactionIdFromURLInvalid() {
+        Assertions.assertThrows(InvalidDataException.class, () -> service.getTransactionIdFromURL(null));
+        Assertions.assertThrows(InvalidDataException.class, () -> service.getTransactionIdFromURL("http://wwww.this.is.an.url.com/foo=bar"));
+        Assertions.assertThrows(InvalidDataException.class, () -> service.getTransactionIdFromURL("http://wwww.this.is.an.url.com/transactionDeId=123&foo=bar"));
+    }
+
+    @Test
+    void notifyTransactionStatus() {
+        NotifyTransactionStatusRequest request = NotifyTransactionStatusRequest.NotifyTransactionStatusRequestBuilder
+                .aNotifyTransactionStatusRequest()
+                .withContractConfiguration(MockUtils.aContractConfiguration())
+                .withPartnerConfiguration(MockUtils.aPartnerConfiguration())
+                .withTransactionId("1")
+                .withPartnerTransactionId("1234567890123")
+                .withTransactionSatus(Constants.PaylineTransactionStatus.SUCCESS)
+                .build();
+
+        service.notifyTransactionStatus(request);
+
+        // the dossier is not polled anymore, and its cached status is confirmed
+        ArgumentCaptor<CheckStatusRequest> checkStatusRequest = ArgumentCaptor.forClass(CheckStatusRequest.class);
+        Mockito.verify(pendingDossierPoller).untrack(checkStatusRequest.capture());
+        Assertions.assertEquals("1234567890123", checkStatusRequest.getValue().getCheckStatusIn().getTransactionId());
+        Mockito.verify(httpService).onPaylineDecision(request.getPartnerConfiguration(), checkStatusRequest.getValue(), Boolean.TRUE);
+    }
+
+    @Test
+    void notifyTransactionStatus_noPartnerTransactionId() {
+        NotifyTransactionStatusRequest request = NotifyTransactionStatusRequest.NotifyTransactionStatusRequestBuilder
+                .aNotifyTransactionStatusRequest()
+                .withContractConfiguration(MockUtils.aContractConfiguration())
+                .withTransactionId("1")
+                .withTransactionSatus(Constants.PaylineTransactionStatus.SUCCESS)
+                .build();
+
+        service.notifyTransactionStatus(request);
+
+        Mockito.verifyZeroInteractions(pendingDossierPoller, httpService);
+    }
+
+    @Test
+    void notifyTransactionStatus_error() {
+        Mockito.doThrow(new IllegalStateException("error")).when(httpService).onPaylineDecision(any(), any(), any());
+        NotifyTransactionStatusRequest request = NotifyTransactionStatusRequest.NotifyTransactionStatusRequestBuilder
+                .aNotifyTransactionStatusRequest()
+                .withContractConfiguration(MockUtils.aContractConfiguration())
+                .withPartnerTransactionId("1234567890123")
+                .withTransactionSatus(Constants.PaylineTransactionStatus.FAILURE)
+                .build();
+
+        Assertions.assertDoesNotThrow(() -> service.notifyTransactionStatus(request));
+    }
+
+    private static Stream<Arguments> transactionStatuses() {
+        return Stream.of(
+                Arguments.of(Constants.PaylineTransactionStatus.SUCCESS, true)
+                , Arguments.of(Constants.PaylineTransactionStatus.FAILURE, false)
+                , Arguments.of(Constants.PaylineTransactionStatus.ON_HOLD, null)
+                // not a Payline status
+                , Arguments.of("success", null)
+                , Arguments.of(null, null)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("transactionStatuses")
+    void isAccepted(String transactionStatus, Boolean expected) {
+        Assertions.assertEquals(expected, NotificationServiceImpl.isAccepted(transactionStatus));
+    }
+}
@@ -6,7 +6,9 @@ import com.payline.payment.ppewshop.bean.configuration.RequestConfiguration;
 import com.payline.payment.ppewshop.bean.response.CheckStatusResponse;
 import com.payline.payment.ppewshop.bean.response.PpewShopResponseKO;
 import com.payline.payment.ppewshop.exception.PluginException;
+import com.payline.payment.ppewshop.exception.TooManyCallsException;
 import com.payline.payment.ppewshop.service.HttpService;
+import com.payline.payment.ppewshop.service.PendingDossierPoller;
 import com.payline.pmapi.bean.common.FailureCause;
 import com.payline.pmapi.bean.common.OnHoldCause;
 import com.payline.pmapi.bean.payment.response.PaymentResponse;
@@ -39,6 +41,8 @@ class PaymentWithRedirectionServiceImplTest {
     @Mock
     private HttpService httpService = HttpService.getInstance();
 
+    @Mock
+    private PendingDossierPoller pendingDossierPoller = PendingDossierPoller.getInstance();
 
     @BeforeEach
     void setUp() {
@@ -87,11 +91,13 @@ class PaymentWithRedirectionServiceImplTest {
             PaymentResponseOnHold responseOnHold = (PaymentResponseOnHold) response;
             Assertions.assertEquals(transactionId, responseOnHold.getPartnerTransactionId());
             Assertions.assertEquals(OnHoldCause.INPROGRESS_PARTNER, responseOnHold.getOnHoldCause());
+            Mockito.verify(pendingDossierPoller).track(Mockito.eq(configuration), any());
 
         } else if (responseClass.equals(PaymentResponseRedirect.class)) {
             PaymentResponseRedirect responseRedirect = (PaymentResponseRedirect) response;
             Assertions.assertEquals(transactionId, responseRedirect.getPartnerTransactionId());
             Assertions.assertEquals(new URL("http://redirectionUrl.com"), responseRedirect.getRedirectionRequest().getUrl());
+            Mockito.verify(pendingDossierPoller, Mockito.never()).track(any(), any());
 
         } else {
             PaymentResponseFailure responseFailure = (PaymentResponseFailure) response;
@@ -144,4 +150,24 @@ class PaymentWithRedirectionServiceImplTest {
         Assertions.assertEquals(PaymentResponseFailure.class, response.getClass());
     }
 
-}
\ No newline at end of file
+    @Test
+    void retrieveTransactionStatusTooManyCalls() {
+        Mockito.doThrow(new TooManyCallsException("too many calls")).when(httpService).checkStatus(any(), any());
+
+        RequestConfiguration configuration = new RequestConfiguration(
+                MockUtils.aContractConfiguration()
+                , MockUtils.anEnvironment()
+                , MockUtils.aPartnerConfiguration()
+        );
+
+        PaymentResponse response = service.retrieveTransactionStatus(configuration, "1", "an.email@foo.bar");
+
+        // the status is not known yet: the transaction must not fail
+        Assertions.assertEquals(PaymentResponseOnHold.class, response.getClass());
+        Assertions.assertEquals(OnHoldCause.INPROGRESS_PARTNER, ((PaymentResponseOnHold) response).getOnHoldCause());
+        // and: no partner status is reported, as none was obtained
+        Assertions.assertNull(((PaymentResponseOnHold) response).getStatusCode());
+        Mockito.verify(pendingDossierPoller, Mockito.never()).track(any(), any());
+    }
+
+}
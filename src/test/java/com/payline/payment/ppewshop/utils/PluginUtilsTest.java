@@ -1,5 +1,6 @@
 package com.payline.payment.ppewshop.utils;
 
+import com.payline.payment.ppewshop.exception.InvalidDataException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -10,6 +11,7 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.math.BigInteger;
 import java.util.Currency;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 class PluginUtilsTest {
@@ -61,4 +63,14 @@ class PluginUtilsTest {
 
         Assertions.assertEquals(expectedUrl, PluginUtils.cleanUrl(url));
     }
-}
\ No newline at end of file
+
+    @Test
+    void join() {
+        Assertions.assertEquals("foo", PluginUtils.join(CompletableFuture.completedFuture("foo")));
+
+        // the failure is thrown as is, not wrapped into a CompletionException
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new InvalidDataException("bar"));
+        Assertions.assertThrows(InvalidDataException.class, () -> PluginUtils.join(failed));
+    }
+}
@@ -0,0 +1,64 @@
+package com.payline.payment.ppewshop.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compare the extraction of the transaction id from a notification URL with the regular expression the notifications
+ * used to run, and with {@link TransactionDeIdScanner}, on a realistic URL and on adversarial ones (many partial
+ * matches, no match at all).
+ * Not a unit test (it is excluded from the build like the other *IT classes): run it manually. It reports the
+ * timings without asserting on them; {@link TransactionDeIdScannerTest} checks the results on the same URLs.
+ */
+class TransactionDeIdScannerBenchmarkIT {
+
+    private static final int WARM_UP = 50_000;
+    private static final int ITERATIONS = 500_000;
+
+    private static final Pattern PATTERN = Pattern.compile("transactionDeId=(.{13})");
+
+    private static final String REALISTIC = "/notification?brandCode=2525011983&NumVdr=1000764191&typeCredit=cla"
+            + "&transactionDeId=8a31839767c42";
+    private static final String PARTIAL_MATCHES = repeat("transactionDe&", 50) + "transactionDeId=8a31839767c42";
+    private static final String NO_MATCH = "/notification?" + repeat("brandCode=2525011983&", 50);
+
+    @Test
+    void regexVsScanner() {
+        for (String url : new String[]{REALISTIC, PARTIAL_MATCHES, NO_MATCH}) {
+            for (int i = 0; i < WARM_UP; i++) {
+                regex(url);
+                TransactionDeIdScanner.find(url);
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                regex(url);
+            }
+            long regex = (System.nanoTime() - start) / ITERATIONS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                TransactionDeIdScanner.find(url);
+            }
+            long scanner = (System.nanoTime() - start) / ITERATIONS;
+
+            System.out.printf("%d chars URL: regex %d ns, scanner %d ns%n", url.length(), regex, scanner);
+        }
+    }
+
+    private static String regex(String url) {
+        Matcher matcher = PATTERN.matcher(url);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static String repeat(String value, int count) {
+        StringBuilder builder = new StringBuilder(value.length() * count);
+        for (int i = 0; i < count; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.payline.payment.ppewshop.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+class TransactionDeIdScannerTest {
+
+    private static Stream<Arguments> url_set() {
+        return Stream.of(
+                Arguments.of("transactionDeId=1234567890123", "1234567890123"),
+                Arguments.of("http://wwww.this.is.an.url.com/transactionDeId=1234567890123&foo=bar", "1234567890123"),
+                Arguments.of("/notify?brandCode=2525011983&NumVdr=1000764191&transactionDeId=8a31839767c420140167c71b4baa000b", "8a31839767c42"),
+                // the first valid value is returned
+                Arguments.of("transactionDeId=123&transactionDeId=abcDEF1234567", "abcDEF1234567"),
+                Arguments.of("transactionDeId=transactionDeId=1234567890123", "transactionDe"),
+                // many partial matches before the parameter, or none at all
+                Arguments.of(repeat("transactionDe&", 50) + "transactionDeId=8a31839767c42", "8a31839767c42"),
+                Arguments.of("/notification?" + repeat("brandCode=2525011983&", 50), null),
+                // no valid value
+                Arguments.of("transactionDeId=123456789012", null),
+                Arguments.of("transactionDeId=123456789012&", null),
+                Arguments.of("transactionDeId=12345-7890123", null),
+                Arguments.of("transactionDeId=12345\u00e97890123", null),
+                Arguments.of("transactiondeid=1234567890123", null),
+                Arguments.of("", null),
+                Arguments.of(null, null)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("url_set")
+    void find(String url, String expected) {
+        Assertions.assertEquals(expected, TransactionDeIdScanner.find(url));
+    }
+
+    private static String repeat(String value, int count) {
+        StringBuilder builder = new StringBuilder(value.length() * count);
+        for (int i = 0; i < count; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.payline.payment.ppewshop.utils;
+
+import com.payline.payment.ppewshop.utils.metrics.Metrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarmUpTest {
+
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    @Test
+    void start_disabled() {
+        assertFalse(new WarmUp(false, tasks::add).start());
+        assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    void start_once() {
+        WarmUp warmUp = new WarmUp(true, tasks::add);
+
+        // the services are all instantiated, but the warm-up only runs once
+        assertTrue(warmUp.start());
+        assertFalse(warmUp.start());
+        assertEquals(1, tasks.size());
+    }
+
+    @Test
+    void run() {
+        // given: the duration recorded so far
+        long before = Metrics.getInstance().get(WarmUp.DURATION);
+        long failedBefore = Metrics.getInstance().get(WarmUp.FAILED);
+
+        // when: running the warm-up
+        List<String> failed = new WarmUp(true, tasks::add).run();
+
+        // then: every step succeeded without any network call, and the duration is recorded
+        assertEquals(Collections.emptyList(), failed);
+        assertEquals(failedBefore, Metrics.getInstance().get(WarmUp.FAILED));
+        assertTrue(Metrics.getInstance().get(WarmUp.DURATION) >= before);
+    }
+
+}
@@ -0,0 +1,202 @@
+package com.payline.payment.ppewshop.utils.cache;
+
+import com.payline.payment.ppewshop.bean.common.CheckStatusOut;
+import com.payline.payment.ppewshop.bean.common.MerchantOrderReference;
+import com.payline.payment.ppewshop.bean.response.CheckStatusResponse;
+import com.payline.payment.ppewshop.utils.metrics.Metrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionStatusCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final Metrics metrics = Metrics.getInstance();
+
+    private static CheckStatusResponse aResponse(CheckStatusOut.StatusCode statusCode) {
+        return new CheckStatusResponse(CheckStatusOut.Builder.aCheckStatusOut()
+                .withTransactionId("transactionId")
+                .withStatusCode(statusCode)
+                .build());
+    }
+
+    @ParameterizedTest
+    @EnumSource(CheckStatusOut.StatusCode.class)
+    void put_terminalOnly(CheckStatusOut.StatusCode statusCode) {
+        TransactionStatusCache cache = new TransactionStatusCache(10, 1_000, now::get);
+        CheckStatusResponse response = aResponse(statusCode);
+
+        cache.put("key", response);
+
+        boolean terminal = statusCode == CheckStatusOut.StatusCode.A
+                || statusCode == CheckStatusOut.StatusCode.R
+                || statusCode == CheckStatusOut.StatusCode.C;
+        assertEquals(terminal, TransactionStatusCache.isTerminal(statusCode));
+        CheckStatusResponse cached = cache.get("key");
+        assertEquals(terminal, cached != null);
+        if (terminal) {
+            assertEquals(statusCode, cached.getCheckStatusOut().getStatusCode());
+        }
+    }
+
+    @Test
+    void get_copy() {
+        // given: a response whose fields are all set
+        TransactionStatusCache cache = new TransactionStatusCache(10, 1_000, now::get);
+        CheckStatusResponse response = new CheckStatusResponse(CheckStatusOut.Builder.aCheckStatusOut()
+                .withTransactionId("transactionId")
+                .withMerchantOrderReference(MerchantOrderReference.Builder.aMerchantOrderReference()
+                        .withMerchantOrderId("merchantOrderId").withMerchantRef("merchantRef").build())
+                .withStatusCode(CheckStatusOut.StatusCode.A)
+                .withCreditAuthorizationNumber("creditAuthorizationNumber")
+                .withRedirectionUrl("redirectionUrl")
+                .build());
+        cache.put("key", response);
+
+        // then: each caller gets its own copy of it
+        CheckStatusResponse first = cache.get("key");
+        CheckStatusResponse second = cache.get("key");
+        assertNotSame(response, first);
+        assertNotSame(first, second);
+        assertNotSame(first.getCheckStatusOut(), second.getCheckStatusOut());
+        assertNotSame(first.getCheckStatusOut().getMerchantOrderReference(), second.getCheckStatusOut().getMerchantOrderReference());
+
+        CheckStatusOut copy = first.getCheckStatusOut();
+        assertEquals("transactionId", copy.getTransactionId());
+        assertEquals("merchantOrderId", copy.getMerchantOrderReference().getMerchantOrderId());
+        assertEquals("merchantRef", copy.getMerchantOrderReference().getMerchantRef());
+        assertEquals(CheckStatusOut.StatusCode.A, copy.getStatusCode());
+        assertEquals("creditAuthorizationNumber", copy.getCreditAuthorizationNumber());
+        assertEquals("redirectionUrl", copy.getRedirectionUrl());
+    }
+
+    @Test
+    void get_hitAndMiss() {
+        TransactionStatusCache cache = new TransactionStatusCache(10, 1_000, now::get);
+        cache.put("finished", aResponse(CheckStatusOut.StatusCode.A));
+        long hits = metrics.get(TransactionStatusCache.HIT);
+        long misses = metrics.get(TransactionStatusCache.MISS);
+
+        assertNotNull(cache.get("finished"));
+        assertNull(cache.get("unknown"));
+
+        assertEquals(hits + 1, metrics.get(TransactionStatusCache.HIT));
+        assertEquals(misses + 1, metrics.get(TransactionStatusCache.MISS));
+    }
+
+    @Test
+    void get_expired() {
+        // given: a status kept for 1 second
+        TransactionStatusCache cache = new TransactionStatusCache(10, 1_000, now::get);
+        cache.put("key", aResponse(CheckStatusOut.StatusCode.R));
+        long expired = metrics.get(TransactionStatusCache.EXPIRED);
+
+        // then: it is answered until it expires
+        now.addAndGet(999);
+        assertNotNull(cache.get("key"));
+        now.addAndGet(1);
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.size());
+        assertEquals(expired + 1, metrics.get(TransactionStatusCache.EXPIRED));
+    }
+
+    @Test
+    void put_leastRecentlyUsedEvicted() {
+        TransactionStatusCache cache = new TransactionStatusCache(2, 1_000, now::get);
+        long evictions = metrics.get(TransactionStatusCache.EVICTION);
+        cache.put("first", aResponse(CheckStatusOut.StatusCode.A));
+        cache.put("second", aResponse(CheckStatusOut.StatusCode.A));
+
+        // when: the first transaction is used again, then a third one is added
+        assertNotNull(cache.get("first"));
+        cache.put("third", aResponse(CheckStatusOut.StatusCode.C));
+
+        // then: the second one, the least recently used, is evicted
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("first"));
+        assertNull(cache.get("second"));
+        assertNotNull(cache.get("third"));
+        assertEquals(evictions + 1, metrics.get(TransactionStatusCache.EVICTION));
+    }
+
+    @Test
+    void disabled() {
+        TransactionStatusCache cache = new TransactionStatusCache(0, 1_000, now::get);
+
+        cache.put("key", aResponse(CheckStatusOut.StatusCode.A));
+
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.size());
+    }
+
+
+    @Test
+    void onPaylineDecision_confirmed() {
+        // given: an accepted transaction, confirmed by Payline
+        TransactionStatusCache cache = new TransactionStatusCache(10, 1_000, now::get);
+        cache.put("key", aResponse(CheckStatusOut.StatusCode.A));
+        long confirmed = metrics.get(TransactionStatusCache.CONFIRMED);
+        now.addAndGet(500);
+
+        cache.onPaylineDecision("key", true);
+
+        // then: it is kept for another time to live from the decision, not forever
+        now.addAndGet(999);
+        assertNotNull(cache.get("key"));
+        now.addAndGet(1);
+        assertNull(cache.get("key"));
+        assertEquals(confirmed + 1, metrics.get(TransactionStatusCache.CONFIRMED));
+    }
+
+    @Test
+    void onPaylineDecision_refusedConfirmed() {
+        TransactionStatusCache cache = new TransactionStatusCache(10, 1_000, now::get);
+        cache.put("key", aResponse(CheckStatusOut.StatusCode.C));
+        now.addAndGet(500);
+
+        cache.onPaylineDecision("key", false);
+
+        now.addAndGet(999);
+        assertNotNull(cache.get("key"));
+    }
+
+    @Test
+    void onPaylineDecision_expired() {
+        // given: a status which has expired, but is still in the cache
+        TransactionStatusCache cache = new TransactionStatusCache(10, 1_000, now::get);
+        cache.put("key", aResponse(CheckStatusOut.StatusCode.A));
+        long confirmed = metrics.get(TransactionStatusCache.CONFIRMED);
+        now.addAndGet(1_000);
+
+        cache.onPaylineDecision("key", true);
+
+        // then: it is not revived
+        assertEquals(0, cache.size());
+        assertNull(cache.get("key"));
+        assertEquals(confirmed, metrics.get(TransactionStatusCache.CONFIRMED));
+    }
+
+    @Test
+    void onPaylineDecision_invalidated() {
+        // given: Payline disagrees with the partner, or its decision is unknown
+        TransactionStatusCache cache = new TransactionStatusCache(10, 1_000, now::get);
+        cache.put("disagreement", aResponse(CheckStatusOut.StatusCode.A));
+        cache.put("unknown", aResponse(CheckStatusOut.StatusCode.R));
+        long invalidated = metrics.get(TransactionStatusCache.INVALIDATED);
+
+        cache.onPaylineDecision("disagreement", false);
+        cache.onPaylineDecision("unknown", null);
+        cache.onPaylineDecision("notCached", true);
+
+        // then: the partner is asked again
+        assertNull(cache.get("disagreement"));
+        assertNull(cache.get("unknown"));
+        assertEquals(0, cache.size());
+        assertEquals(invalidated + 2, metrics.get(TransactionStatusCache.INVALIDATED));
+    }
+
+}
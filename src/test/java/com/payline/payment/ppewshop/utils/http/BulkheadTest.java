@@ -0,0 +1,64 @@
+package com.payline.payment.ppewshop.utils.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadTest {
+
+    private final AtomicLong now = new AtomicLong(0);
+
+    @Test
+    void tryAcquire_maxConcurrentCalls() {
+        Bulkhead bulkhead = new Bulkhead(2, 0, 0, now::get);
+
+        // when: 2 calls are in progress, then: a third one is rejected
+        assertTrue(bulkhead.tryAcquire());
+        assertTrue(bulkhead.tryAcquire());
+        assertFalse(bulkhead.tryAcquire());
+
+        // when: a call ends, then: another one can start
+        bulkhead.release();
+        assertTrue(bulkhead.tryAcquire());
+    }
+
+    @Test
+    void tryAcquire_rate() {
+        // given: 10 calls per second, 2 at once
+        Bulkhead bulkhead = new Bulkhead(100, 10, 2, now::get);
+
+        // then: the burst is consumed, then the calls are rejected
+        assertTrue(bulkhead.tryAcquire());
+        assertTrue(bulkhead.tryAcquire());
+        assertFalse(bulkhead.tryAcquire());
+
+        // when: 100 ms have passed, then: a single call is allowed
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(bulkhead.tryAcquire());
+        assertFalse(bulkhead.tryAcquire());
+
+        // when: a long time has passed, then: no more than the burst is allowed
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertTrue(bulkhead.tryAcquire());
+        assertTrue(bulkhead.tryAcquire());
+        assertFalse(bulkhead.tryAcquire());
+    }
+
+    @Test
+    void tryAcquire_rateRejectionReleasesCall() {
+        Bulkhead bulkhead = new Bulkhead(1, 10, 1, now::get);
+
+        // when: a call is rejected by the rate limit
+        assertTrue(bulkhead.tryAcquire());
+        bulkhead.release();
+        assertFalse(bulkhead.tryAcquire());
+
+        // then: it does not hold a place among the calls in progress
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(bulkhead.tryAcquire());
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.payline.payment.ppewshop.utils.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong(0);
+
+    // window of 4 calls, evaluated from 4 calls, opening at 50% of failures, for 1s, closing after 2 successful trials
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker("https://www.example.com", 4, 4, 50, 1000, 2, now::get);
+
+    @Test
+    void closed_belowThreshold() {
+        // given: 1 failure out of 4 calls
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+
+        // then: the calls still go through
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void closed_minimumCalls() {
+        // given: 3 failures, but not enough calls to compute a failure rate
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void closed_slidingWindow() {
+        // given: old failures pushed out of the window by successes
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+
+        // when: a new failure occurs, then: only 1 failure out of the last 4 calls
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void open_rejectsUntilCoolDown() {
+        // given: 2 failures out of 4 calls
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+
+        // then: the calls are rejected during the cool-down
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquire());
+        now.set(999);
+        assertFalse(circuitBreaker.tryAcquire());
+
+        // then: trial calls are let through once the cool-down is over, no more than configured
+        now.set(1000);
+        assertTrue(circuitBreaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void halfOpen_closesOnSuccess() {
+        this.openThenWait();
+
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onSuccess();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onSuccess();
+
+        // then: the circuit is closed, with a fresh window
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void halfOpen_reopensOnFailure() {
+        this.openThenWait();
+
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onFailure();
+
+        // then: a new cool-down starts
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquire());
+        now.addAndGet(1000);
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void halfOpen_release() {
+        this.openThenWait();
+
+        // given: all the trial permissions are taken, but one call is finally not sent
+        assertTrue(circuitBreaker.tryAcquire());
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.release();
+
+        // then: its permission can be used by another call
+        assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    private void openThenWait() {
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.onFailure();
+        }
+        now.addAndGet(1000);
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.payline.payment.ppewshop.utils.http;
+
+import com.payline.payment.ppewshop.utils.PluginUtils;
+import com.payline.payment.ppewshop.utils.metrics.Metrics;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class CompressionTest {
+
+    private static final String XML = "<ns2:checkStatusIn xmlns:ns2=\"urn:PPEWShopServiceV3\">"
+            + "<ns2:transactionId xmlns:ns2=\"urn:PPEWShopServiceV3\">1234567890</ns2:transactionId>"
+            + "<ns2:merchantCode xmlns:ns2=\"urn:PPEWShopServiceV3\">1212121212</ns2:merchantCode>"
+            + "</ns2:checkStatusIn>";
+
+    @InjectMocks
+    private Compression compression = new Compression(true, true, 100);
+
+    @Mock
+    private Metrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    void compress() throws IOException {
+        StringEntity body = new StringEntity(XML, ContentType.APPLICATION_XML);
+
+        HttpEntity compressed = compression.compress(body, PartnerOperation.CHECK_STATUS);
+
+        // then: the body is gzipped, and the bytes saved counted
+        assertEquals("gzip", compressed.getContentEncoding().getValue());
+        assertEquals(body.getContentType().getValue(), compressed.getContentType().getValue());
+        assertTrue(compressed.getContentLength() < body.getContentLength());
+        assertEquals(XML, PluginUtils.inputStreamToString(new GZIPInputStream(compressed.getContent())));
+        verify(metrics).add("http.checkStatus.bytesSaved", body.getContentLength() - compressed.getContentLength());
+    }
+
+    @Test
+    void compress_belowMinSize() {
+        StringEntity body = new StringEntity("<small/>", ContentType.APPLICATION_XML);
+
+        assertSame(body, compression.compress(body, PartnerOperation.CHECK_STATUS));
+        verify(metrics, never()).add(anyString(), anyLong());
+    }
+
+    @Test
+    void compress_disabled() {
+        StringEntity body = new StringEntity(XML, ContentType.APPLICATION_XML);
+
+        assertSame(body, new Compression(true, false, 0).compress(body, PartnerOperation.CHECK_STATUS));
+    }
+
+    @Test
+    void decompress_gzip() throws IOException {
+        // given: a gzipped response
+        byte[] gzipped = gzip(XML);
+        ByteArrayEntity entity = new ByteArrayEntity(gzipped);
+        entity.setContentEncoding("gzip");
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(entity);
+        response.addHeader("Content-Encoding", "gzip");
+
+        compression.decompress(response, PartnerOperation.INIT_DOSSIER);
+
+        // then: the content is read decompressed, and the bytes saved counted once read
+        assertNull(response.getFirstHeader("Content-Encoding"));
+        assertNull(response.getEntity().getContentEncoding());
+        StringResponse stringResponse = StringResponse.fromHttpResponse(response);
+        assertEquals(XML, stringResponse.getContent());
+        verify(metrics).add("http.initDossier.bytesSaved", XML.getBytes(StandardCharsets.UTF_8).length - gzipped.length);
+    }
+
+    @Test
+    void decompress_identity() {
+        StringEntity entity = new StringEntity(XML, ContentType.APPLICATION_XML);
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(entity);
+
+        compression.decompress(response, PartnerOperation.CHECK_STATUS);
+
+        assertSame(entity, response.getEntity());
+    }
+
+    private static byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.payline.payment.ppewshop.utils.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExponentialBackoffRetryPolicyTest {
+
+    private final ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy(5, 100, 300);
+
+    @Test
+    void retryDelay_cappedExponential() {
+        for (int i = 0; i < 100; i++) {
+            long first = policy.retryDelay(PartnerOperation.CHECK_STATUS, 1, new ConnectException(), true);
+            long second = policy.retryDelay(PartnerOperation.CHECK_STATUS, 2, new ConnectException(), true);
+            long fourth = policy.retryDelay(PartnerOperation.CHECK_STATUS, 4, new ConnectException(), true);
+
+            // then: the random delay stays below 100, 200, then the maximum 300 (instead of 800)
+            assertTrue(first >= 0 && first <= 100);
+            assertTrue(second >= 0 && second <= 200);
+            assertTrue(fourth >= 0 && fourth <= 300);
+        }
+    }
+
+    @Test
+    void retryDelay_maxAttempts() {
+        assertEquals(ExponentialBackoffRetryPolicy.NO_RETRY, policy.retryDelay(PartnerOperation.CHECK_STATUS, 5, null, true));
+    }
+
+    @Test
+    void retryDelay_largeAttempt() {
+        ExponentialBackoffRetryPolicy unlimited = new ExponentialBackoffRetryPolicy(Integer.MAX_VALUE, 100, 300);
+        long delay = unlimited.retryDelay(PartnerOperation.CHECK_STATUS, 200, null, true);
+        assertTrue(delay >= 0 && delay <= 300);
+    }
+
+    @Test
+    void retryDelay_nonIdempotent() {
+        // a request which did not reach the partner can be sent again
+        assertTrue(policy.retryDelay(PartnerOperation.INIT_DOSSIER, 1, new ConnectException(), false) >= 0);
+
+        // a request which reached the partner must not create a second dossier
+        assertEquals(ExponentialBackoffRetryPolicy.NO_RETRY, policy.retryDelay(PartnerOperation.INIT_DOSSIER, 1, new ConnectException(), true));
+    }
+
+}
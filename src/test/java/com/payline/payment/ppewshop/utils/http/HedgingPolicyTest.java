@@ -0,0 +1,71 @@
+package com.payline.payment.ppewshop.utils.http;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgingPolicyTest {
+
+    @Test
+    void tryAcquire_budget() {
+        // given: at most 5% of the requests hedged
+        HedgingPolicy policy = new HedgingPolicy(100, 5);
+
+        // when: 19 requests have been sent, then: no hedge yet
+        for (int i = 0; i < 19; i++) {
+            policy.onRequest();
+        }
+        assertFalse(policy.tryAcquire());
+
+        // when: the 20th one is sent, then: a single hedge is allowed
+        policy.onRequest();
+        assertTrue(policy.tryAcquire());
+        assertFalse(policy.tryAcquire());
+    }
+
+    @Test
+    void tryAcquire_burstCapped() {
+        HedgingPolicy policy = new HedgingPolicy(100, 100);
+
+        // when: a lot of requests have been sent without any hedge
+        for (int i = 0; i < 1000; i++) {
+            policy.onRequest();
+        }
+
+        // then: the saved budget is capped
+        int hedges = 0;
+        while (policy.tryAcquire()) {
+            hedges++;
+        }
+        assertEquals(10, hedges);
+    }
+
+    @Test
+    void hedgeDelay_fixed() {
+        assertEquals(100, new HedgingPolicy(100, 5).hedgeDelay());
+    }
+
+    @Test
+    void hedgeDelay_observedPercentile() {
+        HedgingPolicy policy = new HedgingPolicy(0, 5);
+
+        // given: not enough latencies observed
+        for (int i = 0; i < 19; i++) {
+            policy.recordLatency(10);
+        }
+        assertEquals(HedgingPolicy.NO_HEDGE, policy.hedgeDelay());
+
+        // when: less than 5% of the requests are slow, then: the delay is the usual latency
+        for (int i = 19; i < 128; i++) {
+            policy.recordLatency(i % 25 == 0 ? 1000 : 10);
+        }
+        assertEquals(10, policy.hedgeDelay());
+
+        // when: the partner slows down, then: the delay follows the last latencies
+        for (int i = 0; i < 16; i++) {
+            policy.recordLatency(1000);
+        }
+        assertEquals(1000, policy.hedgeDelay());
+    }
+
+}
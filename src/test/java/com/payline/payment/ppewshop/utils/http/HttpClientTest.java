@@ -0,0 +1,197 @@
+package com.payline.payment.ppewshop.utils.http;
+
+import com.payline.payment.ppewshop.MockUtils;
+import com.payline.payment.ppewshop.exception.PluginException;
+import com.payline.payment.ppewshop.utils.metrics.Metrics;
+import com.payline.payment.ppewshop.utils.properties.ConfigProperties;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.pool.PoolStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.internal.util.reflection.FieldSetter;
+import org.mockito.invocation.InvocationOnMock;
+
+import java.lang.reflect.Field;
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class HttpClientTest {
+
+    private static final String URL = "https://www.example.com/PPEWShopServiceV3";
+
+    private final HttpClient client = HttpClient.getInstance();
+
+    @Mock
+    private CloseableHttpAsyncClient asyncClient;
+
+    @Mock
+    private Metrics metrics;
+
+    @Mock
+    private Future<HttpResponse> exchange;
+
+    /**
+     * The singleton's own client and metrics, put back after each test.
+     */
+    private Object realAsyncClient;
+    private Object realMetrics;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        realAsyncClient = swap("client", asyncClient);
+        realMetrics = swap("metrics", metrics);
+        client.setRetryPolicy(new ExponentialBackoffRetryPolicy(3, 0, 0));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        swap("client", realAsyncClient);
+        swap("metrics", realMetrics);
+        ConfigProperties config = ConfigProperties.getInstance();
+        client.setRetryPolicy(new ExponentialBackoffRetryPolicy(Integer.parseInt(config.get("http.retries"))
+                , Integer.parseInt(config.get("http.retry.initialDelay")), Integer.parseInt(config.get("http.retry.maxDelay"))));
+    }
+
+    @Test
+    void getPoolStats() {
+        // when: reading the pool statistics of a client which has not sent any request
+        PoolStats stats = client.getPoolStats();
+
+        // then: the pool is sized from config.properties and no connection is in use
+        assertNotNull(stats);
+        assertEquals(50, stats.getMax());
+        assertEquals(0, stats.getLeased());
+        assertEquals(0, stats.getPending());
+    }
+
+    @Test
+    void post_nominal() {
+        // given: the partner answers
+        doAnswer(invocation -> complete(invocation, MockUtils.mockHttpResponse(200, "OK", "content", null)))
+                .when(asyncClient).execute(any(HttpUriRequest.class), any());
+
+        // when: posting a request
+        StringResponse response = client.post(URL, null, new StringEntity("body", StandardCharsets.UTF_8), PartnerOperation.CHECK_STATUS);
+
+        // then: the response is returned after one attempt
+        assertEquals("content", response.getContent());
+        verify(asyncClient, times(1)).execute(any(HttpUriRequest.class), any());
+        verify(metrics, times(1)).increment("http.checkStatus.attempt");
+    }
+
+    @Test
+    void post_idempotentRetried() {
+        // given: the request reaches the partner, but the connection always fails
+        doAnswer(invocation -> failAfterSending(invocation, true))
+                .when(asyncClient).execute(any(HttpUriRequest.class), any());
+
+        // when: posting a checkStatus request, then: it is sent 3 times before failing
+        assertThrows(PluginException.class, () -> client.post(URL, null, new StringEntity("body", StandardCharsets.UTF_8), PartnerOperation.CHECK_STATUS));
+        verify(asyncClient, times(3)).execute(any(HttpUriRequest.class), any());
+        verify(metrics, times(3)).increment("http.checkStatus.attempt");
+        verify(metrics, times(2)).increment("http.checkStatus.retry");
+        verify(metrics, times(1)).increment("http.checkStatus.failure");
+    }
+
+    @Test
+    void post_nonIdempotentNotSent() {
+        // given: the connection to the partner cannot be established
+        doAnswer(invocation -> failAfterSending(invocation, false))
+                .when(asyncClient).execute(any(HttpUriRequest.class), any());
+
+        // when: posting an initDossier request, then: it is retried as the partner never received it
+        assertThrows(PluginException.class, () -> client.post(URL, null, new StringEntity("body", StandardCharsets.UTF_8), PartnerOperation.INIT_DOSSIER));
+        verify(asyncClient, times(3)).execute(any(HttpUriRequest.class), any());
+    }
+
+    @Test
+    void post_nonIdempotentSent() {
+        // given: the request reaches the partner, but the connection fails before the response
+        doAnswer(invocation -> failAfterSending(invocation, true))
+                .when(asyncClient).execute(any(HttpUriRequest.class), any());
+
+        // when: posting an initDossier request, then: it is not sent again
+        assertThrows(PluginException.class, () -> client.post(URL, null, new StringEntity("body", StandardCharsets.UTF_8), PartnerOperation.INIT_DOSSIER));
+        verify(asyncClient, times(1)).execute(any(HttpUriRequest.class), any());
+        verify(metrics, never()).increment("http.initDossier.retry");
+    }
+
+    @Test
+    void hedge() {
+        // given: the first request never obtains a response, the second one does
+        doReturn(exchange)
+                .doAnswer(invocation -> complete(invocation, MockUtils.mockHttpResponse(200, "OK", "content", null)))
+                .when(asyncClient).execute(any(HttpUriRequest.class), any());
+        HedgingPolicy hedging = spy(new HedgingPolicy(10, 100));
+
+        // when: posting a checkStatus request with hedging after 10 ms
+        StringResponse response = client.hedge(() -> client.postAsync(URL, null, new StringEntity("body", StandardCharsets.UTF_8)
+                , PartnerOperation.CHECK_STATUS), PartnerOperation.CHECK_STATUS, hedging).join();
+
+        // then: the response of the second request is used, and the first one is aborted
+        assertEquals("content", response.getContent());
+        verify(asyncClient, times(2)).execute(any(HttpUriRequest.class), any());
+        verify(metrics, times(1)).increment("http.checkStatus.hedged");
+        verify(exchange, timeout(1000)).cancel(true);
+
+        // and: the first request latency is recorded, though it lost
+        verify(hedging, timeout(1000).times(1)).recordLatency(anyLong());
+    }
+
+    @Test
+    void hedge_notNeeded() {
+        // given: the first request obtains a response before the hedging delay
+        doAnswer(invocation -> complete(invocation, MockUtils.mockHttpResponse(200, "OK", "content", null)))
+                .when(asyncClient).execute(any(HttpUriRequest.class), any());
+        HedgingPolicy hedging = spy(new HedgingPolicy(50, 100));
+
+        StringResponse response = client.hedge(() -> client.postAsync(URL, null, new StringEntity("body", StandardCharsets.UTF_8)
+                , PartnerOperation.CHECK_STATUS), PartnerOperation.CHECK_STATUS, hedging).join();
+
+        // then: a single request is sent, and its latency recorded
+        assertEquals("content", response.getContent());
+        verify(asyncClient, after(100).times(1)).execute(any(HttpUriRequest.class), any());
+        verify(hedging, times(1)).recordLatency(anyLong());
+        verify(metrics, never()).increment("http.checkStatus.hedged");
+    }
+
+    private Object swap(String fieldName, Object value) throws Exception {
+        Field field = HttpClient.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        Object previous = field.get(client);
+        FieldSetter.setField(client, field, value);
+        return previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object complete(InvocationOnMock invocation, HttpResponse response) {
+        ((FutureCallback<HttpResponse>) invocation.getArgument(1)).completed(response);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object failAfterSending(InvocationOnMock invocation, boolean send) throws Exception {
+        if (send) {
+            // the client reads the entity when writing it on the connection
+            ((HttpEntityEnclosingRequest) invocation.getArgument(0)).getEntity().getContent();
+        }
+        ((FutureCallback<HttpResponse>) invocation.getArgument(1)).failed(new ConnectException("Connection refused"));
+        return null;
+    }
+
+}
@@ -7,15 +7,34 @@ import com.payline.payment.ppewshop.bean.request.CheckStatusRequest;
 import com.payline.payment.ppewshop.bean.request.InitDossierRequest;
 import com.payline.payment.ppewshop.bean.response.CheckStatusResponse;
 import com.payline.payment.ppewshop.bean.response.InitDossierResponse;
+import com.payline.payment.ppewshop.exception.BusinessException;
 import com.payline.payment.ppewshop.exception.PluginException;
+import com.payline.payment.ppewshop.exception.TooManyCallsException;
 import com.payline.payment.ppewshop.service.HttpService;
+import com.payline.payment.ppewshop.utils.Constants;
+import com.payline.payment.ppewshop.utils.PluginUtils;
+import com.payline.payment.ppewshop.utils.cache.TransactionStatusCache;
+import com.payline.pmapi.bean.common.FailureCause;
+import com.payline.pmapi.bean.configuration.PartnerConfiguration;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.mockito.*;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 class HttpServiceTest {
@@ -27,6 +46,9 @@ class HttpServiceTest {
     @Mock
     private HttpClient client = HttpClient.getInstance();
 
+    @Spy
+    private TransactionStatusCache transactionStatusCache = new TransactionStatusCache(100, 60_000);
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.initMocks(this);
@@ -39,7 +61,7 @@ class HttpServiceTest {
                 , MockUtils.templateCheckStatusResponse.replace(MockUtils.STATUS_CODE, CheckStatusOut.StatusCode.A.name())
                 , null);
 
-        Mockito.doReturn(stringResponse).when(client).post(any(), any(), any());
+        Mockito.doReturn(CompletableFuture.completedFuture(stringResponse)).when(client).postAsync(any(), any(), any(), any());
 
         RequestConfiguration configuration = new RequestConfiguration(
                 MockUtils.aContractConfiguration()
@@ -68,10 +90,12 @@ class HttpServiceTest {
         Assertions.assertEquals( "1234567890",response.getCheckStatusOut().getTransactionId());
         Assertions.assertEquals( CheckStatusOut.StatusCode.A,response.getCheckStatusOut().getStatusCode());
         Assertions.assertEquals( "34600015",response.getCheckStatusOut().getCreditAuthorizationNumber());
-        Assertions.assertEquals( "32552564",response.getCheckStatusOut().getMerchantOrderReference().getMerchantOrderId());
+        Assertions.assertEquals( "http://redirectionUrl.com",response.getCheckStatusOut().getRedirectionUrl());
+        // not used by the plugin: not decoded from the response stream
+        Assertions.assertNull(response.getCheckStatusOut().getMerchantOrderReference());
 
         // assert the mock is working properly (to avoid false negative)
-        verify( client, never() ).execute( any() );
+        verify( client, never() ).executeAsync( any(), any() );
     }
 
     @Test
@@ -81,7 +105,7 @@ class HttpServiceTest {
                 , MockUtils.templateResponseError
                 , null);
 
-        Mockito.doReturn(stringResponse).when(client).post(any(), any(), any());
+        Mockito.doReturn(CompletableFuture.completedFuture(stringResponse)).when(client).postAsync(any(), any(), any(), any());
 
         RequestConfiguration configuration = new RequestConfiguration(
                 MockUtils.aContractConfiguration()
@@ -106,7 +130,67 @@ class HttpServiceTest {
         Assertions.assertThrows(PluginException.class, () -> httpService.checkStatus(configuration, request));
 
         // assert the mock is working properly (to avoid false negative)
-        verify( client, never() ).execute( any() );
+        verify( client, never() ).executeAsync( any(), any() );
+    }
+
+    @Test
+    void checkStatusAsync() {
+        StringResponse stringResponse = MockUtils.mockStringResponse(200
+                , "OK"
+                , MockUtils.templateCheckStatusResponse.replace(MockUtils.STATUS_CODE, CheckStatusOut.StatusCode.E.name())
+                , null);
+
+        CompletableFuture<StringResponse> pending = new CompletableFuture<>();
+        Mockito.doReturn(pending).when(client).postAsync(any(), any(), any(), any());
+
+        RequestConfiguration configuration = new RequestConfiguration(
+                MockUtils.aContractConfiguration()
+                , MockUtils.anEnvironment()
+                , MockUtils.aPartnerConfiguration()
+        );
+
+        CheckStatusIn checkStatusIn = CheckStatusIn.Builder
+                .aCheckStatusIn()
+                .withTransactionId("transactionId")
+                .withMerchantInformation(MerchantInformation.Builder.aMerchantInformation().withMerchantCode("merchantCode").build())
+                .build();
+
+        CompletableFuture<CheckStatusResponse> future = httpService.checkStatusAsync(configuration, new CheckStatusRequest(checkStatusIn));
+
+        // the calling thread is not blocked until the partner answers
+        Assertions.assertFalse(future.isDone());
+
+        pending.complete(stringResponse);
+        Assertions.assertEquals(CheckStatusOut.StatusCode.E, future.join().getCheckStatusOut().getStatusCode());
+    }
+
+    @Test
+    void checkStatusAsyncKO() {
+        StringResponse stringResponse = MockUtils.mockStringResponse(500
+                , "KO"
+                , MockUtils.templateResponseError
+                , null);
+
+        Mockito.doReturn(CompletableFuture.completedFuture(stringResponse)).when(client).postAsync(any(), any(), any(), any());
+
+        RequestConfiguration configuration = new RequestConfiguration(
+                MockUtils.aContractConfiguration()
+                , MockUtils.anEnvironment()
+                , MockUtils.aPartnerConfiguration()
+        );
+
+        CheckStatusIn checkStatusIn = CheckStatusIn.Builder
+                .aCheckStatusIn()
+                .withTransactionId("transactionId")
+                .withMerchantInformation(MerchantInformation.Builder.aMerchantInformation().withMerchantCode("merchantCode").build())
+                .build();
+
+        CompletableFuture<CheckStatusResponse> future = httpService.checkStatusAsync(configuration, new CheckStatusRequest(checkStatusIn));
+
+        // the error is carried by the future instead of being thrown
+        Assertions.assertTrue(future.isCompletedExceptionally());
+        CompletionException e = Assertions.assertThrows(CompletionException.class, future::join);
+        Assertions.assertTrue(e.getCause() instanceof PluginException);
     }
 
     @Test
@@ -116,7 +200,7 @@ class HttpServiceTest {
                 , MockUtils.templateInitDossierResponse
                 , null);
 
-        Mockito.doReturn(stringResponse).when(client).post(any(), any(), any());
+        Mockito.doReturn(CompletableFuture.completedFuture(stringResponse)).when(client).postAsync(any(), any(), any(), any());
 
         RequestConfiguration configuration = new RequestConfiguration(
                 MockUtils.aContractConfiguration()
@@ -180,7 +264,7 @@ class HttpServiceTest {
                 , MockUtils.templateResponseError
                 , null);
 
-        Mockito.doReturn(stringResponse).when(client).post(any(), any(), any());
+        Mockito.doReturn(CompletableFuture.completedFuture(stringResponse)).when(client).postAsync(any(), any(), any(), any());
 
         RequestConfiguration configuration = new RequestConfiguration(
                 MockUtils.aContractConfiguration()
@@ -232,6 +316,337 @@ class HttpServiceTest {
         Assertions.assertThrows(PluginException.class, () -> httpService.initDossier(configuration, request));
 
         // assert the mock is working properly (to avoid false negative)
-        verify( client, never() ).execute( any() );
+        verify( client, never() ).executeAsync( any(), any() );
     }
-}
\ No newline at end of file
+
+    @Test
+    void checkStatusCircuitOpen() {
+        // given: a partner URL which cannot be reached
+        CompletableFuture<StringResponse> failure = new CompletableFuture<>();
+        failure.completeExceptionally(new PluginException("Failed to contact the partner API", FailureCause.COMMUNICATION_ERROR));
+        Mockito.doReturn(failure).when(client).postAsync(any(), any(), any(), any());
+
+        Map<String, String> partnerConfigurationMap = new HashMap<>();
+        partnerConfigurationMap.put(Constants.PartnerConfigurationKeys.URL, "https://down.example.com/PPEWShop/services/PPEWShopServiceV3");
+        RequestConfiguration configuration = new RequestConfiguration(
+                MockUtils.aContractConfiguration()
+                , MockUtils.anEnvironment()
+                , new PartnerConfiguration(partnerConfigurationMap, new HashMap<>())
+        );
+
+        CheckStatusIn checkStatusIn = CheckStatusIn.Builder
+                .aCheckStatusIn()
+                .withTransactionId("transactionId")
+                .withMerchantInformation(MerchantInformation.Builder.aMerchantInformation().withMerchantCode("merchantCode").build())
+                .build();
+        CheckStatusRequest request = new CheckStatusRequest(checkStatusIn);
+
+        // when: the calls keep failing
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertThrows(PluginException.class, () -> httpService.checkStatus(configuration, request));
+        }
+
+        // then: the circuit opens, and the next call fails without reaching the partner
+        PluginException e = Assertions.assertThrows(PluginException.class, () -> httpService.checkStatus(configuration, request));
+        Assertions.assertEquals(FailureCause.COMMUNICATION_ERROR, e.getFailureCause());
+        // a fault of the partner, not one of its business outcomes
+        Assertions.assertFalse(e instanceof BusinessException);
+        verify(client, times(10)).postAsync(any(), any(), any(), any());
+    }
+
+    @Test
+    void checkStatusCircuitOpenOnServerErrors() {
+        // given: something in front of the partner API answers 503 with its own error page
+        Mockito.doAnswer(invocation -> CompletableFuture.completedFuture(MockUtils.mockStringResponse(503
+                , "Service Unavailable"
+                , "<html><body>Service Unavailable</body></html>"
+                , null))).when(client).postAsync(any(), any(), any(), any());
+
+        RequestConfiguration configuration = configurationFor("https://unavailable.example.com/PPEWShop/services/PPEWShopServiceV3");
+        CheckStatusRequest request = new CheckStatusRequest(CheckStatusIn.Builder
+                .aCheckStatusIn()
+                .withTransactionId("transactionId")
+                .withMerchantInformation(MerchantInformation.Builder.aMerchantInformation().withMerchantCode("merchantCode").build())
+                .build());
+
+        // when: the calls keep obtaining these responses
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertThrows(PluginException.class, () -> httpService.checkStatus(configuration, request));
+        }
+
+        // then: they count as failures, and the circuit opens
+        PluginException e = Assertions.assertThrows(PluginException.class, () -> httpService.checkStatus(configuration, request));
+        Assertions.assertEquals(FailureCause.COMMUNICATION_ERROR, e.getFailureCause());
+        verify(client, times(10)).postAsync(any(), any(), any(), any());
+    }
+
+    @Test
+    void checkStatusCircuitClosedOnPartnerErrors() {
+        // given: the partner API itself answers 500 with one of its errors
+        Mockito.doAnswer(invocation -> CompletableFuture.completedFuture(MockUtils.mockStringResponse(500
+                , "Internal Server Error"
+                , MockUtils.templateResponseError
+                , null))).when(client).postAsync(any(), any(), any(), any());
+
+        RequestConfiguration configuration = configurationFor("https://erroneous.example.com/PPEWShop/services/PPEWShopServiceV3");
+        CheckStatusRequest request = new CheckStatusRequest(CheckStatusIn.Builder
+                .aCheckStatusIn()
+                .withTransactionId("transactionId")
+                .withMerchantInformation(MerchantInformation.Builder.aMerchantInformation().withMerchantCode("merchantCode").build())
+                .build());
+
+        // when: the calls keep obtaining these errors
+        for (int i = 0; i < 11; i++) {
+            Assertions.assertThrows(PluginException.class, () -> httpService.checkStatus(configuration, request));
+        }
+
+        // then: the partner API is up, every call reaches it
+        verify(client, times(11)).postAsync(any(), any(), any(), any());
+    }
+
+    @ParameterizedTest
+    @EnumSource(CheckStatusOut.StatusCode.class)
+    void checkStatusCache(CheckStatusOut.StatusCode statusCode) {
+        // given: the partner returns the given status, each time it is called
+        Mockito.doAnswer(invocation -> CompletableFuture.completedFuture(MockUtils.mockStringResponse(200
+                , "OK"
+                , MockUtils.templateCheckStatusResponse.replace(MockUtils.STATUS_CODE, statusCode.name())
+                , null))).when(client).postAsync(any(), any(), any(), any());
+
+        RequestConfiguration configuration = new RequestConfiguration(
+                MockUtils.aContractConfiguration()
+                , MockUtils.anEnvironment()
+                , MockUtils.aPartnerConfiguration()
+        );
+
+        CheckStatusRequest request = new CheckStatusRequest(CheckStatusIn.Builder.aCheckStatusIn()
+                .withTransactionId("transactionId")
+                .withMerchantInformation(MerchantInformation.Builder.aMerchantInformation()
+                        .withMerchantCode("merchantCode").withDistributorNumber("distributor").build())
+                .build());
+
+        // when: the status of the transaction is asked twice
+        Assertions.assertEquals(statusCode, httpService.checkStatus(configuration, request).getCheckStatusOut().getStatusCode());
+        Assertions.assertEquals(statusCode, httpService.checkStatus(configuration, request).getCheckStatusOut().getStatusCode());
+
+        // then: the partner is only called again if the transaction is not finished
+        int expectedCalls = TransactionStatusCache.isTerminal(statusCode) ? 1 : 2;
+        verify(client, times(expectedCalls)).postAsync(any(), any(), any(), any());
+    }
+
+    @Test
+    void checkStatusCacheScopedByUrl() {
+        // given: the partner accepts the transaction
+        Mockito.doAnswer(invocation -> CompletableFuture.completedFuture(MockUtils.mockStringResponse(200
+                , "OK"
+                , MockUtils.templateCheckStatusResponse.replace(MockUtils.STATUS_CODE, "A")
+                , null))).when(client).postAsync(any(), any(), any(), any());
+
+        Map<String, String> otherUrl = new HashMap<>();
+        otherUrl.put(Constants.PartnerConfigurationKeys.URL, "https://other.partner.url/PPEWShopServiceV3");
+        RequestConfiguration configuration = new RequestConfiguration(
+                MockUtils.aContractConfiguration()
+                , MockUtils.anEnvironment()
+                , MockUtils.aPartnerConfiguration()
+        );
+        RequestConfiguration otherConfiguration = new RequestConfiguration(
+                MockUtils.aContractConfiguration()
+                , MockUtils.anEnvironment()
+                , new PartnerConfiguration(otherUrl, new HashMap<>())
+        );
+
+        CheckStatusRequest request = new CheckStatusRequest(CheckStatusIn.Builder.aCheckStatusIn()
+                .withTransactionId("scopedByUrl")
+                .withMerchantInformation(MerchantInformation.Builder.aMerchantInformation()
+                        .withMerchantCode("merchantCode").withDistributorNumber("distributor").build())
+                .build());
+
+        // when: the same transaction is asked to two partner URLs
+        httpService.checkStatus(configuration, request);
+        httpService.checkStatus(otherConfiguration, request);
+
+        // then: the status cached for one URL does not answer the other
+        verify(client, times(2)).postAsync(any(), any(), any(), any());
+
+        // and: the decision of Payline applies to the URL of its transaction only
+        httpService.onPaylineDecision(otherConfiguration.getPartnerConfiguration(), request, Boolean.FALSE);
+        httpService.checkStatus(configuration, request);
+        httpService.checkStatus(otherConfiguration, request);
+        verify(client, times(3)).postAsync(any(), any(), any(), any());
+    }
+
+    @Test
+    void checkStatusBulkheadFull() {
+        // given: the partner does not answer yet
+        Mockito.doReturn(new CompletableFuture<>()).when(client).postAsync(any(), any(), any(), any());
+
+        RequestConfiguration configuration = new RequestConfiguration(
+                MockUtils.aContractConfiguration()
+                , MockUtils.anEnvironment()
+                , MockUtils.aPartnerConfiguration()
+        );
+
+        // distinct transactions: the calls for the same one would be coalesced
+        Function<String, CheckStatusRequest> flooding = transactionId -> new CheckStatusRequest(CheckStatusIn.Builder.aCheckStatusIn()
+                .withTransactionId(transactionId)
+                .withMerchantInformation(MerchantInformation.Builder.aMerchantInformation()
+                        .withMerchantCode("flooding").withDistributorNumber("distributor").build())
+                .build());
+        CheckStatusRequest other = new CheckStatusRequest(CheckStatusIn.Builder.aCheckStatusIn()
+                .withTransactionId("transactionId")
+                .withMerchantInformation(MerchantInformation.Builder.aMerchantInformation()
+                        .withMerchantCode("other").withDistributorNumber("distributor").build())
+                .build());
+
+        // when: a merchant has 10 calls in progress
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertFalse(httpService.checkStatusAsync(configuration, flooding.apply("transactionId" + i)).isDone());
+        }
+
+        // then: its next call is rejected without reaching the partner, but the other merchants can still call it
+        CompletionException e = Assertions.assertThrows(CompletionException.class
+                , () -> httpService.checkStatusAsync(configuration, flooding.apply("transactionId10")).join());
+        Assertions.assertTrue(e.getCause() instanceof TooManyCallsException);
+        Assertions.assertEquals(FailureCause.INTERNAL_ERROR, ((PluginException) e.getCause()).getFailureCause());
+        Assertions.assertFalse(httpService.checkStatusAsync(configuration, other).isDone());
+        verify(client, times(11)).postAsync(any(), any(), any(), any());
+    }
+
+    @Test
+    void checkStatusCoalesced() {
+        // given: the partner has not answered yet
+        CompletableFuture<StringResponse> pending = new CompletableFuture<>();
+        Mockito.doReturn(pending).when(client).postAsync(any(), any(), any(), any());
+
+        RequestConfiguration configuration = new RequestConfiguration(
+                MockUtils.aContractConfiguration()
+                , MockUtils.anEnvironment()
+                , MockUtils.aPartnerConfiguration()
+        );
+
+        CheckStatusRequest request = new CheckStatusRequest(CheckStatusIn.Builder.aCheckStatusIn()
+                .withTransactionId("coalesced")
+                .withMerchantInformation(MerchantInformation.Builder.aMerchantInformation()
+                        .withMerchantCode("merchantCode").withDistributorNumber("distributor").build())
+                .build());
+
+        // when: the redirection and the notification ask for the same transaction at the same time
+        CompletableFuture<CheckStatusResponse> redirection = httpService.checkStatusAsync(configuration, request);
+        CompletableFuture<CheckStatusResponse> notification = httpService.checkStatusAsync(configuration, request);
+
+        // then: a single call is sent, and its response is given to both
+        verify(client, times(1)).postAsync(any(), any(), any(), any());
+        pending.complete(MockUtils.mockStringResponse(200
+                , "OK"
+                , MockUtils.templateCheckStatusResponse.replace(MockUtils.STATUS_CODE, CheckStatusOut.StatusCode.E.name())
+                , null));
+        Assertions.assertEquals(CheckStatusOut.StatusCode.E, redirection.join().getCheckStatusOut().getStatusCode());
+        Assertions.assertEquals(CheckStatusOut.StatusCode.E, notification.join().getCheckStatusOut().getStatusCode());
+
+        // and: once answered, the next call for a pending transaction reaches the partner again
+        httpService.checkStatusAsync(configuration, request);
+        verify(client, times(2)).postAsync(any(), any(), any(), any());
+    }
+
+    @Test
+    void checkStatusCoalescedFailure() {
+        // given: the partner returns an error
+        CompletableFuture<StringResponse> pending = new CompletableFuture<>();
+        Mockito.doReturn(pending).when(client).postAsync(any(), any(), any(), any());
+
+        RequestConfiguration configuration = new RequestConfiguration(
+                MockUtils.aContractConfiguration()
+                , MockUtils.anEnvironment()
+                , MockUtils.aPartnerConfiguration()
+        );
+
+        CheckStatusRequest request = new CheckStatusRequest(CheckStatusIn.Builder.aCheckStatusIn()
+                .withTransactionId("coalescedFailure")
+                .withMerchantInformation(MerchantInformation.Builder.aMerchantInformation()
+                        .withMerchantCode("merchantCode").withDistributorNumber("distributor").build())
+                .build());
+
+        CompletableFuture<CheckStatusResponse> first = httpService.checkStatusAsync(configuration, request);
+        CompletableFuture<CheckStatusResponse> second = httpService.checkStatusAsync(configuration, request);
+        pending.complete(MockUtils.mockStringResponse(500, "KO", MockUtils.templateResponseError, null));
+
+        // then: both callers get the partner error
+        Assertions.assertThrows(PluginException.class, () -> PluginUtils.join(first));
+        Assertions.assertThrows(PluginException.class, () -> PluginUtils.join(second));
+        verify(client, times(1)).postAsync(any(), any(), any(), any());
+    }
+
+    @Test
+    void checkStatusHedged() {
+        // given: hedging sends every request twice, and the partner does not answer
+        List<CompletableFuture<StringResponse>> calls = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            CompletableFuture<StringResponse> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        }).when(client).postAsync(any(), any(), any(), any());
+        Mockito.doAnswer(invocation -> {
+            Supplier<CompletableFuture<?>> request = invocation.getArgument(0);
+            request.get();
+            return request.get();
+        }).when(client).hedge(any(), any(), any());
+        httpService.setHedgingPolicy(new HedgingPolicy(10, 100));
+
+        RequestConfiguration configuration = new RequestConfiguration(
+                MockUtils.aContractConfiguration()
+                , MockUtils.anEnvironment()
+                , MockUtils.aPartnerConfiguration()
+        );
+        Function<String, CheckStatusRequest> request = transactionId -> new CheckStatusRequest(CheckStatusIn.Builder.aCheckStatusIn()
+                .withTransactionId(transactionId)
+                .withMerchantInformation(MerchantInformation.Builder.aMerchantInformation()
+                        .withMerchantCode("hedged").withDistributorNumber("distributor").build())
+                .build());
+
+        // when: 5 calls are in progress, i.e. 10 requests
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertFalse(httpService.checkStatusAsync(configuration, request.apply("transactionId" + i)).isDone());
+        }
+
+        // then: the hedged requests took their share of the merchant bulkhead
+        verify(client, times(10)).postAsync(any(), any(), any(), any());
+        CompletionException e = Assertions.assertThrows(CompletionException.class
+                , () -> httpService.checkStatusAsync(configuration, request.apply("transactionId5")).join());
+        Assertions.assertTrue(e.getCause() instanceof TooManyCallsException);
+
+        // the lost requests release the bulkhead
+        calls.forEach(call -> call.cancel(true));
+        Assertions.assertFalse(httpService.checkStatusAsync(configuration, request.apply("transactionId5")).isCompletedExceptionally());
+    }
+
+    @Test
+    void initDossierNotHedged() {
+        Mockito.doReturn(new CompletableFuture<>()).when(client).postAsync(any(), any(), any(), any());
+        httpService.setHedgingPolicy(new HedgingPolicy(10, 100));
+
+        RequestConfiguration configuration = new RequestConfiguration(
+                MockUtils.aContractConfiguration()
+                , MockUtils.anEnvironment()
+                , MockUtils.aPartnerConfiguration()
+        );
+        httpService.initDossierAsync(configuration, new InitDossierRequest(InitDossierIn.Builder.anInitDossier()
+                .withMerchantInformation(MerchantInformation.Builder.aMerchantInformation()
+                        .withMerchantCode("notHedged").withDistributorNumber("distributor").build())
+                .build()));
+
+        // the partner would create two dossiers
+        verify(client, never()).hedge(any(), any(), any());
+        verify(client, times(1)).postAsync(any(), any(), any(), any());
+    }
+
+    private static RequestConfiguration configurationFor(String url) {
+        Map<String, String> partnerConfigurationMap = new HashMap<>();
+        partnerConfigurationMap.put(Constants.PartnerConfigurationKeys.URL, url);
+        return new RequestConfiguration(
+                MockUtils.aContractConfiguration()
+                , MockUtils.anEnvironment()
+                , new PartnerConfiguration(partnerConfigurationMap, new HashMap<>())
+        );
+    }
+
+}
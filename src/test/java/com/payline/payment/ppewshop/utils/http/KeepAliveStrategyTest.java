@@ -0,0 +1,34 @@
+package com.payline.payment.ppewshop.utils.http;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.BasicHttpContext;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class KeepAliveStrategyTest {
+
+    private final KeepAliveStrategy strategy = new KeepAliveStrategy(30000);
+
+    @Test
+    void getKeepAliveDuration_header() {
+        // given: the server announces it keeps the connection for 5 seconds
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.addHeader("Keep-Alive", "timeout=5, max=100");
+
+        // then: the announced duration is used
+        assertEquals(5000, strategy.getKeepAliveDuration(response, new BasicHttpContext()));
+    }
+
+    @Test
+    void getKeepAliveDuration_noHeader() {
+        // given: the server does not announce anything
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+
+        // then: the default duration is used, instead of keeping the connection indefinitely
+        assertEquals(30000, strategy.getKeepAliveDuration(response, new BasicHttpContext()));
+    }
+
+}
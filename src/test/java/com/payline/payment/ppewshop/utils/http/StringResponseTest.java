@@ -1,6 +1,7 @@
 package com.payline.payment.ppewshop.utils.http;
 
 import com.payline.payment.ppewshop.MockUtils;
+import com.payline.payment.ppewshop.utils.PluginUtils;
 import org.apache.http.Header;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.message.BasicHeader;
@@ -31,6 +32,32 @@ class StringResponseTest {
         assertEquals("Value", stringResponse.getHeader("name"));
     }
 
+    @Test
+    void getContentStream() {
+        // given: a complete HTTP response
+        CloseableHttpResponse httpResponse = MockUtils.mockHttpResponse(200, "OK", "some content", null);
+        StringResponse stringResponse = StringResponse.fromHttpResponse(httpResponse);
+
+        // when: reading the content as a stream, then: the entity content is returned as is
+        assertEquals("some content", PluginUtils.inputStreamToString(stringResponse.getContentStream()));
+
+        // the content is still readable, for logging in particular
+        assertEquals("some content", PluginUtils.inputStreamToString(stringResponse.getContentStream()));
+        assertEquals("some content", stringResponse.getContent());
+        assertTrue(stringResponse.toString().endsWith("some content"));
+    }
+
+    @Test
+    void getContentStream_afterGetContent() {
+        // given: a response whose content has already been read as a String
+        CloseableHttpResponse httpResponse = MockUtils.mockHttpResponse(200, "OK", "some content", null);
+        StringResponse stringResponse = StringResponse.fromHttpResponse(httpResponse);
+        assertEquals("some content", stringResponse.getContent());
+
+        // when: reading the content as a stream, then: the String content is streamed
+        assertEquals("some content", PluginUtils.inputStreamToString(stringResponse.getContentStream()));
+    }
+
     @Test
     void fromHttpResponse_null() {
         // when: converting null to StringResponse
@@ -0,0 +1,55 @@
+package com.payline.payment.ppewshop.utils.http;
+
+import com.payline.payment.ppewshop.MockUtils;
+import com.payline.payment.ppewshop.bean.common.CheckStatusIn;
+import com.payline.payment.ppewshop.bean.common.MerchantInformation;
+import com.payline.payment.ppewshop.bean.request.CheckStatusRequest;
+import com.payline.payment.ppewshop.utils.PluginUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XmlRequestEntityTest {
+
+    private CheckStatusRequest aCheckStatusRequest() {
+        MerchantInformation merchantInformation = MerchantInformation.Builder.aMerchantInformation()
+                .withMerchantCode("1212121212")
+                .withDistributorNumber("2323232323")
+                .withCountryCode("FRA")
+                .build();
+
+        CheckStatusIn checkStatusIn = CheckStatusIn.Builder.aCheckStatusIn()
+                .withTransactionId("1234567890")
+                .withMerchantInformation(merchantInformation)
+                .build();
+
+        return new CheckStatusRequest(checkStatusIn);
+    }
+
+    @Test
+    void content() {
+        XmlRequestEntity entity = new XmlRequestEntity(aCheckStatusRequest());
+
+        // the body is the same as the String serialization, and can be read several times (retries)
+        assertTrue(entity.isRepeatable());
+        assertEquals(MockUtils.templateCheckStatusRequest.getBytes(StandardCharsets.UTF_8).length, entity.getContentLength());
+        assertEquals(MockUtils.templateCheckStatusRequest, PluginUtils.inputStreamToString(entity.getContent()));
+        assertEquals(MockUtils.templateCheckStatusRequest, PluginUtils.inputStreamToString(entity.getContent()));
+        assertEquals("application/xml; charset=UTF-8", entity.getContentType().getValue());
+    }
+
+    @Test
+    void writeTo() throws IOException {
+        XmlRequestEntity entity = new XmlRequestEntity(aCheckStatusRequest());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeTo(out);
+
+        assertEquals(MockUtils.templateCheckStatusRequest, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.payline.payment.ppewshop.utils.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MetricsTest {
+
+    private final Metrics metrics = new Metrics();
+
+    @Test
+    void counters() {
+        metrics.increment("foo");
+        metrics.increment("foo");
+        metrics.add("bar", 5);
+
+        assertEquals(2, metrics.get("foo"));
+        assertEquals(5, metrics.get("bar"));
+        assertEquals(0, metrics.get("baz"));
+
+        Map<String, Long> snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.size());
+        assertEquals(Long.valueOf(2), snapshot.get("foo"));
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.payline.payment.ppewshop.utils.xml;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.payline.payment.ppewshop.bean.common.CheckStatusIn;
+import com.payline.payment.ppewshop.bean.common.MerchantInformation;
+import com.payline.payment.ppewshop.bean.request.CheckStatusRequest;
+import com.payline.payment.ppewshop.exception.InvalidDataException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckStatusRequestSerializerTest {
+
+    private final CheckStatusRequestSerializer serializer = new CheckStatusRequestSerializer();
+
+    private static Stream<String> values() {
+        return Arrays.stream(new String[]{null, "", "1234567890", "a<b>c&d\"e'f", "]]>", "a]>b]]c>", ">x", "é€😀"
+                , "\t\n\r x", "&amp;", "\u007f\u0085\u009f\u00a0", "\u2028\ufffe\uffff"});
+    }
+
+    private static Stream<CheckStatusRequest> requests() {
+        return Stream.concat(
+                values().map(value -> aRequest(value, MerchantInformation.Builder.aMerchantInformation()
+                        .withMerchantCode(value)
+                        .withDistributorNumber("2323232323")
+                        .withCountryCode(value)
+                        .build()))
+                , Stream.of(aRequest("1234567890", null), new CheckStatusRequest(null)));
+    }
+
+    private static CheckStatusRequest aRequest(String transactionId, MerchantInformation merchantInformation) {
+        return new CheckStatusRequest(CheckStatusIn.Builder.aCheckStatusIn()
+                .withTransactionId(transactionId)
+                .withMerchantInformation(merchantInformation)
+                .build());
+    }
+
+    @ParameterizedTest
+    @MethodSource("requests")
+    void write_sameAsJackson(CheckStatusRequest request) throws IOException {
+        String jackson = XmlSerializer.getInstance().writerFor(CheckStatusRequest.class).writeValueAsString(request);
+
+        assertEquals(jackson, write(request));
+    }
+
+    @Test
+    void write_merchantFragmentCached() throws IOException {
+        MerchantInformation merchantInformation = MerchantInformation.Builder.aMerchantInformation()
+                .withMerchantCode("1212121212")
+                .withDistributorNumber("2323232323")
+                .withCountryCode("FRA")
+                .build();
+
+        // when: several requests are sent for the same contract
+        String first = write(aRequest("1", merchantInformation));
+        String second = write(aRequest("2", merchantInformation));
+
+        // then: its fragment is built once, and each request keeps its own transaction id
+        assertEquals(1, serializer.cachedMerchants());
+        assertTrue(first.contains("<transactionId>1</transactionId>"));
+        assertTrue(second.contains("<transactionId>2</transactionId>"));
+        assertEquals(first.replace(">1<", ">2<"), second);
+    }
+
+    @Test
+    void write_missingValueNotNullString() throws IOException {
+        // given: a merchant without distributor number, and one whose distributor number is the "null" string
+        CheckStatusRequest missing = aRequest("1", MerchantInformation.Builder.aMerchantInformation()
+                .withMerchantCode("1212121212")
+                .withCountryCode("FRA")
+                .build());
+        CheckStatusRequest nullString = aRequest("1", MerchantInformation.Builder.aMerchantInformation()
+                .withMerchantCode("1212121212")
+                .withDistributorNumber("null")
+                .withCountryCode("FRA")
+                .build());
+
+        // when: both are serialized, in both orders, then: each one keeps its own fragment
+        for (CheckStatusRequest request : new CheckStatusRequest[]{missing, nullString, missing}) {
+            assertEquals(XmlSerializer.getInstance().writerFor(CheckStatusRequest.class).writeValueAsString(request)
+                    , write(request));
+        }
+        assertEquals(2, serializer.cachedMerchants());
+    }
+
+    @Test
+    void write_invalidCharacter() {
+        CheckStatusRequest request = aRequest("\u0001", null);
+
+        assertThrows(JsonProcessingException.class
+                , () -> XmlSerializer.getInstance().writerFor(CheckStatusRequest.class).writeValueAsString(request));
+        assertThrows(InvalidDataException.class, () -> write(request));
+    }
+
+    private String write(CheckStatusRequest request) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.write(request, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.payline.payment.ppewshop.utils.xml;
+
+import com.payline.payment.ppewshop.bean.common.CheckStatusOut;
+import com.payline.payment.ppewshop.bean.response.CheckStatusResponse;
+import com.payline.payment.ppewshop.exception.InvalidDataException;
+import com.payline.payment.ppewshop.utils.PluginUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckStatusResponseDecoderTest {
+
+    /**
+     * Compare the decoder with Jackson over the responses of src/test/resources/checkStatusResponses.
+     * These are hand-written fixtures, not responses recorded from the partner API: they follow its response format,
+     * with variations (namespace prefixes, field order, CDATA, empty elements) a decoder has to accept.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"accepted", "pending", "refused", "cancelled", "incomplete", "unknownTransaction"})
+    void decode_sameAsJackson(String response) throws XMLStreamException {
+        String xml = PluginUtils.inputStreamToString(fixture(response));
+
+        CheckStatusOut jackson = CheckStatusResponse.fromXml(xml).getCheckStatusOut();
+        CheckStatusOut decoded = CheckStatusResponseDecoder.decode(fixture(response)).getCheckStatusOut();
+
+        assertEquals(jackson.getTransactionId(), decoded.getTransactionId());
+        assertEquals(jackson.getStatusCode(), decoded.getStatusCode());
+        assertEquals(jackson.getCreditAuthorizationNumber(), decoded.getCreditAuthorizationNumber());
+        assertEquals(jackson.getRedirectionUrl(), decoded.getRedirectionUrl());
+        // not used by the plugin: not decoded
+        assertNull(decoded.getMerchantOrderReference());
+    }
+
+    @Test
+    void decode_stopsEarly() throws XMLStreamException {
+        // given: a response whose end is malformed, after the fields used
+        InputStream xml = stream("<checkStatusResponse><checkStatusOut><transactionId>1</transactionId>"
+                + "<statusCode>A</statusCode><creditAuthorizationNumber>2</creditAuthorizationNumber>"
+                + "<redirectionUrl>http://redirectionUrl.com</redirectionUrl><unexpected></checkStatusOut>");
+
+        // then: the decoder does not read it
+        CheckStatusOut decoded = CheckStatusResponseDecoder.decode(xml).getCheckStatusOut();
+        assertEquals("1", decoded.getTransactionId());
+        assertEquals(CheckStatusOut.StatusCode.A, decoded.getStatusCode());
+    }
+
+    @Test
+    void decode_nestedFieldsIgnored() throws XMLStreamException {
+        // given: an element named as a field, inside another element
+        InputStream xml = stream("<checkStatusResponse><checkStatusOut><merchandOrderReference>"
+                + "<transactionId>nested</transactionId></merchandOrderReference>"
+                + "<transactionId>1</transactionId></checkStatusOut></checkStatusResponse>");
+
+        assertEquals("1", CheckStatusResponseDecoder.decode(xml).getCheckStatusOut().getTransactionId());
+    }
+
+    @Test
+    void fromXml_fallbackOnUnknownStatus() {
+        // given: a status code unknown to the decoder, then: Jackson fails the same way as before
+        InputStream xml = stream("<checkStatusResponse><checkStatusOut><statusCode>Z</statusCode></checkStatusOut></checkStatusResponse>");
+
+        assertThrows(IllegalArgumentException.class, () -> CheckStatusResponseDecoder.decode(stream(
+                "<checkStatusResponse><checkStatusOut><statusCode>Z</statusCode></checkStatusOut></checkStatusResponse>")));
+        assertThrows(InvalidDataException.class, () -> CheckStatusResponse.fromXml(xml));
+    }
+
+    @Test
+    void fromXmlWithJackson() {
+        // the whole response is read, including the merchant order reference the decoder skips
+        CheckStatusOut jackson = CheckStatusResponse.fromXmlWithJackson(fixture("accepted")).getCheckStatusOut();
+
+        assertEquals(CheckStatusOut.StatusCode.A, jackson.getStatusCode());
+        assertNotNull(jackson.getMerchantOrderReference());
+        assertThrows(InvalidDataException.class, () -> CheckStatusResponse.fromXmlWithJackson(stream("<checkStatusResponse>")));
+    }
+
+    @Test
+    void fromXml_fallbackOnMalformedXml() {
+        assertThrows(InvalidDataException.class, () -> CheckStatusResponse.fromXml(stream("<checkStatusResponse><checkStatusOut>")));
+    }
+
+    private static InputStream fixture(String response) {
+        return CheckStatusResponseDecoderTest.class.getResourceAsStream("/checkStatusResponses/" + response + ".xml");
+    }
+
+    private static InputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
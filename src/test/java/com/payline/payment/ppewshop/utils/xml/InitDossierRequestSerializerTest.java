@@ -0,0 +1,103 @@
+package com.payline.payment.ppewshop.utils.xml;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.payline.payment.ppewshop.bean.common.CustomerInformation;
+import com.payline.payment.ppewshop.bean.common.InitDossierIn;
+import com.payline.payment.ppewshop.bean.common.MerchantConfiguration;
+import com.payline.payment.ppewshop.bean.common.MerchantInformation;
+import com.payline.payment.ppewshop.bean.common.MerchantOrderReference;
+import com.payline.payment.ppewshop.bean.common.OrderInformation;
+import com.payline.payment.ppewshop.bean.request.InitDossierRequest;
+import com.payline.payment.ppewshop.exception.InvalidDataException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InitDossierRequestSerializerTest {
+
+    private final InitDossierRequestSerializer serializer = new InitDossierRequestSerializer();
+
+    private static Stream<String> values() {
+        return Arrays.stream(new String[]{null, "", "1234567890", "a<b>c&d\"e'f", "]]>", "a]>b]]c>", ">x", "é€😀"
+                , "\t\n\r x", "&amp;", "\u007f\u0085\u009f\u00a0", "\u2028\ufffe\uffff"});
+    }
+
+    private static Stream<InitDossierRequest> requests() {
+        return Stream.concat(
+                values().map(InitDossierRequestSerializerTest::aRequest)
+                , Stream.of(new InitDossierRequest(InitDossierIn.Builder.anInitDossier().build()), new InitDossierRequest(null)));
+    }
+
+    /**
+     * @return a request with all its fields set to the given value
+     */
+    private static InitDossierRequest aRequest(String value) {
+        return new InitDossierRequest(InitDossierIn.Builder.anInitDossier()
+                .withMerchantInformation(MerchantInformation.Builder.aMerchantInformation()
+                        .withMerchantCode(value)
+                        .withDistributorNumber(value)
+                        .withCountryCode(value)
+                        .build())
+                .withMerchantConfiguration(MerchantConfiguration.Builder.aMerchantConfiguration()
+                        .withGuardPushUrl(value)
+                        .withGuardBackUrl(value)
+                        .build())
+                .withCustomerInformation(CustomerInformation.Builder.aCustomerInformation()
+                        .withTitle(value)
+                        .withCustomerLanguage(value)
+                        .withFirstName(value)
+                        .withName(value)
+                        .withBirthDate(value)
+                        .withEmail(value)
+                        .withAddressLine1(value)
+                        .withAddressLine2(value)
+                        .withCity(value)
+                        .withPostCode(value)
+                        .withCellPhoneNumber(value)
+                        .withPrivatePhoneNumber(value)
+                        .withProfessionalPhoneNumber(value)
+                        .build())
+                .withOrderInformation(OrderInformation.Builder.anOrderInformation()
+                        .withGoodsCode(value)
+                        .withPrice(value)
+                        .withFinancialProductType(value)
+                        .build())
+                .withMerchantOrderReference(MerchantOrderReference.Builder.aMerchantOrderReference()
+                        .withMerchantOrderId(value)
+                        .withMerchantRef(value)
+                        .build())
+                .build());
+    }
+
+    @ParameterizedTest
+    @MethodSource("requests")
+    void write_sameAsJackson(InitDossierRequest request) throws IOException {
+        String jackson = XmlSerializer.getInstance().writerFor(InitDossierRequest.class).writeValueAsString(request);
+
+        assertEquals(jackson, write(request));
+    }
+
+    @Test
+    void write_invalidCharacter() {
+        InitDossierRequest request = aRequest("\u0001");
+
+        assertThrows(JsonProcessingException.class
+                , () -> XmlSerializer.getInstance().writerFor(InitDossierRequest.class).writeValueAsString(request));
+        assertThrows(InvalidDataException.class, () -> write(request));
+    }
+
+    private String write(InitDossierRequest request) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.write(request, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.payline.payment.ppewshop.utils.xml;
+
+import com.payline.payment.ppewshop.MockUtils;
+import com.payline.payment.ppewshop.bean.common.CheckStatusOut;
+import com.payline.payment.ppewshop.bean.response.CheckStatusResponse;
+import com.payline.payment.ppewshop.bean.response.InitDossierResponse;
+import com.payline.payment.ppewshop.bean.response.PartnerResponse;
+import com.payline.payment.ppewshop.bean.response.PpewShopResponseKO;
+import com.payline.payment.ppewshop.exception.InvalidDataException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartnerResponseDecoderTest {
+
+    private static final String ERROR = MockUtils.templateResponseError
+            .replace("ERROR_CODE", "22002")
+            .replace("ERROR_DESCRIPTION", "wrong merchant code");
+
+    @Test
+    void decodeCheckStatus_ok() {
+        // when: decoding a checkStatus response
+        PartnerResponse<CheckStatusResponse> response = PartnerResponseDecoder.decodeCheckStatus(
+                stream("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + MockUtils.templateCheckStatusResponse.replace("STATUS_CODE", "A")));
+
+        // then: the expected response is decoded
+        assertTrue(response.isOk());
+        assertEquals("1234567890", response.getValue().getCheckStatusOut().getTransactionId());
+        assertEquals(CheckStatusOut.StatusCode.A, response.getValue().getCheckStatusOut().getStatusCode());
+        assertThrows(IllegalStateException.class, response::getError);
+    }
+
+    @Test
+    void decodeCheckStatus_ko() {
+        // when: decoding an error, even if it came with a 2xx status
+        PartnerResponse<CheckStatusResponse> response = PartnerResponseDecoder.decodeCheckStatus(stream(ERROR));
+
+        // then: the error is decoded
+        assertFalse(response.isOk());
+        assertEquals(PpewShopResponseKO.ErrorCode.CODE_22002, response.getError().getErrorCode());
+        assertEquals("wrong merchant code", response.getError().getErrorDescription());
+        assertThrows(IllegalStateException.class, response::getValue);
+    }
+
+    @Test
+    void decodeCheckStatus_fallback() {
+        // given: a status code unknown to the streaming decoder, then: Jackson fails the same way as before
+        InputStream xml = stream("<checkStatusResponse><checkStatusOut><statusCode>Z</statusCode></checkStatusOut></checkStatusResponse>");
+
+        assertThrows(InvalidDataException.class, () -> PartnerResponseDecoder.decodeCheckStatus(xml));
+    }
+
+    @Test
+    void decodeInitDossier_ok() {
+        PartnerResponse<InitDossierResponse> response = PartnerResponseDecoder.decodeInitDossier(stream(MockUtils.templateInitDossierResponse));
+
+        assertTrue(response.isOk());
+        assertEquals("1234567890", response.getValue().getInitDossierOut().getTransactionId());
+        assertEquals("13008", response.getValue().getInitDossierOut().getWarning().getWarningCode());
+    }
+
+    @Test
+    void decodeInitDossier_ko() {
+        PartnerResponse<InitDossierResponse> response = PartnerResponseDecoder.decodeInitDossier(stream(ERROR));
+
+        assertFalse(response.isOk());
+        assertEquals(PpewShopResponseKO.ErrorCode.CODE_22002, response.getError().getErrorCode());
+    }
+
+    @Test
+    void decode_unexpectedRoot() {
+        // an initDossier response is not a checkStatus one
+        assertThrows(InvalidDataException.class, () -> PartnerResponseDecoder.decodeCheckStatus(stream(MockUtils.templateInitDossierResponse)));
+        assertThrows(InvalidDataException.class, () -> PartnerResponseDecoder.decodeInitDossier(stream("<html><body>Bad gateway</body></html>")));
+    }
+
+    @Test
+    void decode_malformed() {
+        assertThrows(InvalidDataException.class, () -> PartnerResponseDecoder.decodeCheckStatus(stream("not XML")));
+        assertThrows(InvalidDataException.class, () -> PartnerResponseDecoder.decodeInitDossier(stream("")));
+        assertThrows(InvalidDataException.class, () -> PartnerResponseDecoder.decodeInitDossier(null));
+    }
+
+    @Test
+    void isPartnerError() {
+        assertTrue(PartnerResponseDecoder.isPartnerError(ERROR));
+        // an error page of a proxy, or no content at all
+        assertFalse(PartnerResponseDecoder.isPartnerError("<html><body>Service Unavailable</body></html>"));
+        assertFalse(PartnerResponseDecoder.isPartnerError("Service Unavailable"));
+        assertFalse(PartnerResponseDecoder.isPartnerError(""));
+        assertFalse(PartnerResponseDecoder.isPartnerError(null));
+    }
+
+    private static InputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
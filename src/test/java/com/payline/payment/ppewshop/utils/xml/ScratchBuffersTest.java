@@ -0,0 +1,69 @@
+package com.payline.payment.ppewshop.utils.xml;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScratchBuffersTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "abc", "é€😀", "\u007f\u0080\u07ff\u0800\uffff", "a\ud83dz", "\ude00", "\ud83d"})
+    void writeUtf8_sameAsGetBytes(String value) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ScratchBuffers.writeUtf8(value, out);
+
+        assertArrayEquals(value.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+
+    @Test
+    void writeUtf8_largerThanChunk() throws IOException {
+        // given: a content written in several chunks, with multi-byte characters across their limits
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            value.append("a€😀");
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ScratchBuffers.writeUtf8(value, out);
+
+        assertArrayEquals(value.toString().getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+
+    @Test
+    void chars_reused() {
+        StringBuilder first = ScratchBuffers.chars().append("first request");
+        StringBuilder second = ScratchBuffers.chars();
+
+        // the same buffer is returned, empty
+        assertSame(first, second);
+        assertEquals(0, second.length());
+    }
+
+    @Test
+    void bytes_reused() {
+        ScratchBuffers.Bytes first = ScratchBuffers.bytes();
+        first.write(1);
+        ScratchBuffers.Bytes second = ScratchBuffers.bytes();
+
+        assertSame(first, second);
+        assertEquals(0, second.size());
+    }
+
+    @Test
+    void oversizedBuffersReleased() {
+        // given: an exceptionally large request
+        ScratchBuffers.chars().append(new char[ScratchBuffers.MAX_RETAINED_SIZE + 1]);
+        ScratchBuffers.bytes().write(new byte[ScratchBuffers.MAX_RETAINED_SIZE + 1], 0, ScratchBuffers.MAX_RETAINED_SIZE + 1);
+
+        // then: its buffers are not kept for the next one
+        assertTrue(ScratchBuffers.chars().capacity() <= ScratchBuffers.MAX_RETAINED_SIZE);
+        assertTrue(ScratchBuffers.bytes().capacity() <= ScratchBuffers.MAX_RETAINED_SIZE);
+    }
+
+}
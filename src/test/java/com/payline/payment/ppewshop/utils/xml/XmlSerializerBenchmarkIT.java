@@ -0,0 +1,75 @@
+package com.payline.payment.ppewshop.utils.xml;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.dataformat.xml.JacksonXmlModule;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.payline.payment.ppewshop.bean.common.CheckStatusIn;
+import com.payline.payment.ppewshop.bean.common.MerchantInformation;
+import com.payline.payment.ppewshop.bean.request.CheckStatusRequest;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compare the cost of a request serialization with a mapper built for each request (as the requests used to do),
+ * with the shared Jackson writer, and with the template used by {@link XmlSerializer} for the checkStatus requests.
+ * Not a unit test (it is excluded from the build like the other *IT classes): run it manually. It only reports the
+ * timings, which depend on the machine, without asserting on them.
+ */
+class XmlSerializerBenchmarkIT {
+
+    private static final int WARM_UP = 2_000;
+    private static final int ITERATIONS = 10_000;
+
+    private final CheckStatusRequest request = new CheckStatusRequest(CheckStatusIn.Builder.aCheckStatusIn()
+            .withTransactionId("1234567890")
+            .withMerchantInformation(MerchantInformation.Builder.aMerchantInformation()
+                    .withMerchantCode("1212121212")
+                    .withDistributorNumber("2323232323")
+                    .withCountryCode("FRA")
+                    .build())
+            .build());
+
+    @Test
+    void perRequestMapperVsSharedWriterVsTemplate() throws JsonProcessingException {
+        for (int i = 0; i < WARM_UP; i++) {
+            perRequestMapper();
+            sharedWriter();
+            template();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            perRequestMapper();
+        }
+        long perRequestMapper = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sharedWriter();
+        }
+        long sharedWriter = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            template();
+        }
+        long template = (System.nanoTime() - start) / ITERATIONS;
+
+        System.out.printf("per-request mapper: %d ns/op, shared writer: %d ns/op, template: %d ns/op%n"
+                , perRequestMapper, sharedWriter, template);
+    }
+
+    private String perRequestMapper() throws JsonProcessingException {
+        JacksonXmlModule xmlModule = new JacksonXmlModule();
+        xmlModule.setDefaultUseWrapper(false);
+        return new XmlMapper(xmlModule).writeValueAsString(request);
+    }
+
+    private String sharedWriter() throws JsonProcessingException {
+        return XmlSerializer.getInstance().writerFor(CheckStatusRequest.class).writeValueAsString(request);
+    }
+
+    private String template() {
+        return XmlSerializer.getInstance().toXml(request);
+    }
+
+}
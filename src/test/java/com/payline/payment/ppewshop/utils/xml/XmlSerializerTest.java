@@ -0,0 +1,49 @@
+package com.payline.payment.ppewshop.utils.xml;
+
+import com.payline.payment.ppewshop.MockUtils;
+import com.payline.payment.ppewshop.bean.common.CheckStatusIn;
+import com.payline.payment.ppewshop.bean.common.MerchantInformation;
+import com.payline.payment.ppewshop.bean.request.CheckStatusRequest;
+import com.payline.payment.ppewshop.bean.request.InitDossierRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XmlSerializerTest {
+
+    private final XmlSerializer serializer = XmlSerializer.getInstance();
+
+    private CheckStatusRequest aCheckStatusRequest() {
+        MerchantInformation merchantInformation = MerchantInformation.Builder.aMerchantInformation()
+                .withMerchantCode("1212121212")
+                .withDistributorNumber("2323232323")
+                .withCountryCode("FRA")
+                .build();
+
+        return new CheckStatusRequest(CheckStatusIn.Builder.aCheckStatusIn()
+                .withTransactionId("1234567890")
+                .withMerchantInformation(merchantInformation)
+                .build());
+    }
+
+    @Test
+    void writerFor_shared() {
+        // the writers are built once, and shared by all the requests of the same type
+        assertSame(serializer.writerFor(CheckStatusRequest.class), serializer.writerFor(CheckStatusRequest.class));
+        assertSame(serializer.writerFor(InitDossierRequest.class), serializer.writerFor(InitDossierRequest.class));
+    }
+
+    @Test
+    void writeXml() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        serializer.writeXml(aCheckStatusRequest(), out);
+
+        assertEquals(MockUtils.templateCheckStatusRequest, new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(MockUtils.templateCheckStatusRequest, serializer.toXml(aCheckStatusRequest()));
+    }
+
+}